@@ -10,7 +10,7 @@ public class AlienEntity extends Entity {
 	/** The speed at which the alient moves horizontally */
 	private double moveSpeed = 75;
 	/** The game in which the entity exists */
-	private Game game;
+	protected Game game;
 	
 	/**
 	 * Create a new alien entity
@@ -21,38 +21,31 @@ public class AlienEntity extends Entity {
 	 * @param y The intial y location of this alient
 	 */
 	public AlienEntity(Game game,String ref,int x,int y) {
-		super(ref,x,y);
+		super(game,ref,x,y);
 		
 		this.game = game;
-		dx = -moveSpeed;
+		setHorizontalMovement(-moveSpeed);
+		setTypeId(TYPE_ALIEN);
+		// ask for a logic update when we reach the side of the screen
+
+		addFlags(EntityStore.FLAG_EDGE_TRIGGER);
+		collisionLayer = LAYER_ALIEN;
+		collisionMask = LAYER_SHIP | LAYER_SHOT;
 	}
 
 	/**
-	 * Request that this alien moved based on time elapsed
+	 * Reuse this alien for a new level
 	 * 
-	 * @param delta The time that has elapsed since last move
+	 * @param sprite The handle of the sprite which should be displayed for this alien
+	 * @param x The intial x location of this alien
+	 * @param y The intial y location of this alien
 	 */
-	public void move(long delta) {
-		// if we have reached the left hand side of the screen and
-
-		// are moving left then request a logic update 
-
-		if ((dx < 0) && (x < 10)) {
-			game.updateLogic();
-		}
-		// and vice vesa, if we have reached the right hand side of 
-
-		// the screen and are moving right, request a logic update
-
-		if ((dx > 0) && (x > 750)) {
-			game.updateLogic();
-		}
-		
-		// proceed with normal move
-
-		super.move(delta);
+	void reset(int sprite,int x,int y) {
+		setSprite(SpriteStore.get().getSprite(sprite));
+		place(x,y);
+		setHorizontalMovement(-moveSpeed);
 	}
-	
+
 	public void setMoveSpeed(int i) {
 		moveSpeed = i;
 	}
@@ -65,26 +58,16 @@ public class AlienEntity extends Entity {
 
 		// screen a bit
 
-		dx = -dx;
-		y += 10;
+		setHorizontalMovement(-getHorizontalMovement());
+		translate(0,10);
 		
 		// if we've reached the bottom of the screen then the player
 
 		// dies
 
-		if (y > 570) {
+		if (getExactY() > 570) {
 			game.notifyDeath();
 		}
 	}
-	
-	/**
-	 * Notification that this alien has collided with another entity
-	 * 
-	 * @param other The other entity
-	 */
-	public void collidedWith(Entity other) {
-		// collisions with aliens are handled elsewhere
-
-	}
 }
 
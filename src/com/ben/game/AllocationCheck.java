@@ -0,0 +1,82 @@
+package com.ben.game;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that the per frame path of the game - moving, colliding,
+ * drawing and HUD updates - allocates nothing once it's warmed up.
+ * The first level is played headless by the autopilot and every tick
+ * is drawn into an offscreen image through the same snapshot code the
+ * screen uses. After a warm up the bytes allocated by this thread are
+ * measured over a scripted stretch of the level, and the check fails
+ * (exit status 1) if any were.
+ * <p>
+ * The warm up needs to be long enough for the JIT to compile the
+ * drawing path, until then Java2D allocates short lived objects on
+ * every blit that the compiler later removes. Needs a JVM that
+ * supports com.sun.management.ThreadMXBean.
+ * <p>
+ * Usage: AllocationCheck [warm up ticks] [measured ticks]
+ */
+public class AllocationCheck {
+	/**
+	 * Play and draw a number of ticks
+	 * 
+	 * @param headless The game to play
+	 * @param snapshot The snapshot to capture each tick into
+	 * @param renderer The renderer to draw the snapshot with
+	 * @param g The graphics context to draw each tick to
+	 * @param ticks The number of ticks to run
+	 */
+	private static void play(HeadlessGame headless,WorldSnapshot snapshot,SnapshotRenderer renderer,Graphics2D g,int ticks) {
+		for (int i=0;i<ticks;i++) {
+			headless.run(1,10);
+			snapshot.capture(headless.getGame());
+			renderer.draw(g,snapshot,1);
+		}
+	}
+
+	/**
+	 * The entry point for the check
+	 * 
+	 * @param argv The number of warm up and measured ticks, both optional
+	 */
+	public static void main(String argv[]) {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		int warmUp = argv.length > 0 ? Integer.parseInt(argv[0]) : 2000;
+		int measured = argv.length > 1 ? Integer.parseInt(argv[1]) : 800;
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		HeadlessGame headless = new HeadlessGame();
+		WorldSnapshot snapshot = new WorldSnapshot();
+		SnapshotRenderer renderer = new SnapshotRenderer();
+		BufferedImage image = new BufferedImage(800,600,BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+
+		play(headless,snapshot,renderer,g,warmUp);
+		int state = headless.getGame().getGameStateManager().getStateNumber();
+		int dialogues = headless.getDialogues();
+
+		// work out what reading the counter costs so it can be taken off
+
+		long before = threads.getThreadAllocatedBytes(thread);
+		long overhead = threads.getThreadAllocatedBytes(thread) - before;
+
+		before = threads.getThreadAllocatedBytes(thread);
+		play(headless,snapshot,renderer,g,measured);
+		long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+		if (headless.getDialogues() != dialogues || headless.getGame().getGameStateManager().getStateNumber() != state) {
+			System.out.println("The level ended while measuring, use fewer ticks");
+			System.exit(2);
+		}
+		System.out.println("allocated "+allocated+" bytes over "+measured+" frames ("+(allocated / (double) measured)+" per frame)");
+		System.exit(allocated > 0 ? 1 : 0);
+	}
+}
@@ -1,19 +1,41 @@
 package com.ben.game;
 
 public class ArmoredAlienEntity extends AlienEntity {
+	/** The number of shards the armor breaks into */
+	private static final int SHARDS = 40;
+	/** The colour of the armor's shards */
+	private static final int SHARD_COLOR = 0xB0B0C8;
 
 	private boolean armorOn;
-	private String normalRef;
+	/** The handle of the sprite shown once the armor is broken */
+	private int normalSprite;
 	
 	public ArmoredAlienEntity(Game game, String armorRef, String normalRef, int x, int y) {
 		super(game, armorRef, x, y);
 		armorOn = true;
-		this.normalRef = normalRef;
+		this.normalSprite = SpriteStore.get().getHandle(normalRef);
+		setTypeId(TYPE_ARMORED_ALIEN);
 	}
 	
+	/**
+	 * Reuse this alien for a new level, with its armor back on
+	 * 
+	 * @param armorSprite The handle of the sprite shown while armored
+	 * @param normalSprite The handle of the sprite shown once the armor is broken
+	 * @param x The intial x location of this alien
+	 * @param y The intial y location of this alien
+	 */
+	void reset(int armorSprite,int normalSprite,int x,int y) {
+		reset(armorSprite,x,y);
+		armorOn = true;
+		this.normalSprite = normalSprite;
+	}
+
 	public void BreakArmor() {
 		armorOn = false;
-		this.sprite = SpriteStore.get().getSprite(normalRef);
+		Sprite armor = getSprite();
+		setSprite(SpriteStore.get().getSprite(normalSprite));
+		game.getParticles().shatter(getExactX(),getExactY(),armor.getWidth(),armor.getHeight(),SHARDS,SHARD_COLOR);
 	}
 	
 	public boolean ArmorStatus() {
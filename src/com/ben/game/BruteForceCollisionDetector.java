@@ -0,0 +1,57 @@
+package com.ben.game;
+
+import java.util.ArrayList;
+
+/**
+ * The original collision detection, every entity is compared against
+ * every other entity. Needs no bookkeeping but costs O(n&sup2;) per tick,
+ * so it's mostly useful as a reference to check the others against.
+ */
+public class BruteForceCollisionDetector implements CollisionDetector {
+	/** The number of pairs tested in the last search */
+	private int pairsTested;
+
+	public void add(Entity entity) {
+	}
+
+	public void remove(Entity entity) {
+	}
+
+	public void clear() {
+	}
+
+	public void findCollisions(ArrayList entities) {
+		pairsTested = 0;
+
+		// compare every entity against every other entity that it could
+
+		// interact with. If any of them collide notify both entities that
+
+		// the collision has occured
+
+		for (int p=0;p<entities.size();p++) {
+			for (int s=p+1;s<entities.size();s++) {
+				Entity me = (Entity) entities.get(p);
+				Entity him = (Entity) entities.get(s);
+
+				if (!me.canCollideWith(him)) {
+					continue;
+				}
+				pairsTested++;
+				if (me.collidesWith(him)) {
+					me.collidedWith(him);
+
+					// unless the first response ended the level and took him out
+
+					if (him.isInGame()) {
+						him.collidedWith(me);
+					}
+				}
+			}
+		}
+	}
+
+	public int getPairsTested() {
+		return pairsTested;
+	}
+}
@@ -0,0 +1,58 @@
+package com.ben.game;
+
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferStrategy;
+
+/**
+ * Draws frames to the screen through a canvas's buffer strategy
+ */
+public class BufferStrategyTarget implements RenderTarget {
+	/** The canvas being drawn on */
+	private Canvas canvas;
+	/** The strategy that allows us to use accelerated page flipping */
+	private BufferStrategy strategy;
+	/** True if the back buffer keeps an earlier frame after being shown */
+	private boolean backBufferPreserved;
+
+	/**
+	 * Create a new target for a canvas
+	 * 
+	 * @param canvas The canvas to draw on, its buffer strategy must already have been created
+	 */
+	public BufferStrategyTarget(Canvas canvas) {
+		this.canvas = canvas;
+		this.strategy = canvas.getBufferStrategy();
+
+		// a blitted back buffer keeps the frame drawn into it, a
+
+		// flipped one only if it's swapped or copied with the front
+
+		BufferCapabilities capabilities = strategy.getCapabilities();
+		BufferCapabilities.FlipContents flip = capabilities.getFlipContents();
+		backBufferPreserved = !capabilities.isPageFlipping()
+				|| flip == BufferCapabilities.FlipContents.PRIOR || flip == BufferCapabilities.FlipContents.COPIED;
+	}
+
+	public Graphics2D getDrawGraphics() {
+		return (Graphics2D) strategy.getDrawGraphics();
+	}
+
+	public void show() {
+		strategy.show();
+	}
+
+	public boolean contentsLost() {
+		return strategy.contentsLost();
+	}
+
+	public boolean isBackBufferPreserved() {
+		return backBufferPreserved;
+	}
+
+	public GraphicsConfiguration getGraphicsConfiguration() {
+		return canvas.getGraphicsConfiguration();
+	}
+}
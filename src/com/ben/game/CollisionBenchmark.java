@@ -0,0 +1,78 @@
+package com.ben.game;
+
+import java.util.Random;
+
+/**
+ * Compares the collision detectors against each other. Each level is
+ * played headless with each detector in turn and the collision phase
+ * timings and pairs tested are reported. A final stress run adds a
+ * large number of extra aliens to the first level to show how each
+ * detector scales.
+ * <p>
+ * Usage: CollisionBenchmark [ticks per run] [stress aliens]
+ */
+public class CollisionBenchmark {
+	/** The detectors to compare */
+	private static final String[] DETECTORS = {"brute","sweep","grid"};
+	/** The levels to play */
+	private static final int[] LEVELS = {1,2,3,4};
+
+	/**
+	 * Play one run and print a line of results
+	 * 
+	 * @param label The name of the run
+	 * @param detector The name of the detector to use
+	 * @param level The level to play
+	 * @param extraAliens The number of extra aliens to scatter over the playfield
+	 * @param ticks The number of ticks to run
+	 */
+	private static void run(String label,String detector,int level,int extraAliens,int ticks) {
+		HeadlessGame headless = new HeadlessGame();
+		Game game = headless.getGame();
+		game.setCollisionDetector(Game.createCollisionDetector(detector));
+		game.getGameStateManager().SetStateNumber(level);
+
+		Random random = new Random(level);
+		for (int i=0;i<extraAliens;i++) {
+			game.addEntity(new AlienEntity(game,"sprites/alien.gif",20 + random.nextInt(720),50 + random.nextInt(400)));
+		}
+
+		FrameProfiler profiler = game.getProfiler();
+		profiler.setEnabled(true);
+
+		long start = System.nanoTime();
+		headless.run(ticks,10);
+		long elapsed = System.nanoTime() - start;
+
+		long frames = profiler.getFrames();
+		RollingHistogram collide = profiler.getHistogram(FrameProfiler.COLLIDE);
+		System.out.println(String.format("%-10s %-6s %10.1f %10.1f %10d %10d", label, detector,
+				profiler.getTotal(FrameProfiler.COLLIDE) / 1000.0 / frames, collide.max() / 1000.0,
+				profiler.getCounterTotal(FrameProfiler.PAIRS_TESTED) / frames, (long) (ticks / (elapsed / 1000000000.0))));
+	}
+
+	/**
+	 * The entry point for the benchmark. Collision times and pairs are
+	 * averaged over every tick of a run, the max is over the last few
+	 * hundred ticks.
+	 * 
+	 * @param argv The number of ticks per run and the number of stress aliens, both optional
+	 */
+	public static void main(String argv[]) {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		int ticks = argv.length > 0 ? Integer.parseInt(argv[0]) : 1000;
+		int stress = argv.length > 1 ? Integer.parseInt(argv[1]) : 2000;
+
+		System.out.println("run        detector  collide us   max us  pairs/tick  ticks/sec");
+		for (int l=0;l<LEVELS.length;l++) {
+			for (int d=0;d<DETECTORS.length;d++) {
+				run("level "+LEVELS[l],DETECTORS[d],LEVELS[l],0,ticks);
+			}
+		}
+		for (int d=0;d<DETECTORS.length;d++) {
+			run("stress",DETECTORS[d],1,stress,ticks / 5);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.ben.game;
+
+/**
+ * Checks that every collision detector copes with a collision response
+ * adding collidable entities part way through a search. A shot is
+ * placed on a lone alien below the formation, and when it hits, the
+ * response fires a burst of new shots from just above it, more
+ * than a cell of the grid holds to start with. The burst must not
+ * break the search, and the new shots must go on to hit a second alien
+ * placed above, showing they were picked up by the detector once the
+ * search was over. The check fails (exit status 1) if any detector
+ * throws or misses the second alien.
+ * <p>
+ * Usage: CollisionCheck [ticks]
+ */
+public class CollisionCheck {
+	/** The detectors to check */
+	private static final String[] DETECTORS = {"brute","sweep","grid"};
+	/** The number of shots fired from the first alien, enough to grow a grid cell */
+	private static final int BURST = 12;
+	/** The distance from the first alien up to the second */
+	private static final int GAP = 100;
+
+	/** The game being checked */
+	private static Game game;
+	/** The shot placed on the first alien */
+	private static ShotEntity bait;
+	/** The shots fired by the response, and not yet seen to hit anything */
+	private static ShotEntity[] burst = new ShotEntity[BURST];
+	/** The number of times a shot from the burst hit an alien */
+	private static int burstHits;
+
+	/**
+	 * Check one detector
+	 * 
+	 * @param detector The name of the detector to check
+	 * @param ticks The number of ticks to run after the shot is placed
+	 * @return True if the burst hit the second alien
+	 */
+	private static boolean check(String detector,int ticks) {
+		game = new HeadlessGame().getGame();
+		game.setCollisionDetector(Game.createCollisionDetector(detector));
+		if (game.isWaitingForKeyPress()) {
+			game.continueFromDialogue();
+		}
+
+		// two lone aliens below the formation, one above the other,
+
+		// and a shot sat on the lower one
+
+		AlienEntity first = new AlienEntity(game,"sprites/alien.gif",60,400);
+		AlienEntity second = new AlienEntity(game,"sprites/alien.gif",60,400 - GAP);
+		game.addEntity(first);
+		game.addEntity(second);
+		Sprite alien = first.getSprite();
+		Sprite shot = SpriteStore.get().getSprite("sprites/shot.gif");
+		int x = first.getX() + (alien.getWidth() - shot.getWidth()) / 2;
+		int y = first.getY() + (alien.getHeight() - shot.getHeight()) / 2;
+		bait = new ShotEntity(game,"sprites/shot.gif",x,y,300);
+		game.addEntity(bait);
+		burstHits = 0;
+
+		for (int i=0;i<ticks;i++) {
+			game.tick(10);
+		}
+		return !first.isInGame() && !second.isInGame() && burstHits > 0;
+	}
+
+	/**
+	 * The entry point for the check
+	 * 
+	 * @param argv The number of ticks to run each detector for, optional
+	 */
+	public static void main(String argv[]) {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		int ticks = argv.length > 0 ? Integer.parseInt(argv[0]) : 100;
+
+		// the normal response, plus the burst when the bait hits and
+
+		// a count of the burst's hits
+
+		CollisionResponses.register(Entity.TYPE_SHOT,Entity.TYPE_ALIEN,new CollisionResponse() {
+			public void collided(Entity entity,Entity other) {
+				for (int i=0;i<BURST;i++) {
+					if (burst[i] == entity) {
+						burst[i] = null;
+						burstHits++;
+					}
+				}
+				((ShotEntity) entity).hitAlien((AlienEntity) other);
+				if (entity == bait) {
+					// fire from just above the alien so the burst can't hit it too
+
+					bait = null;
+					int y = other.getY() - entity.getSprite().getHeight() - 1;
+					for (int i=0;i<BURST;i++) {
+						burst[i] = new ShotEntity(game,"sprites/shot.gif",entity.getX(),y,300);
+						game.addEntity(burst[i]);
+					}
+				}
+			}
+		});
+
+		boolean passed = true;
+		for (int i=0;i<DETECTORS.length;i++) {
+			String result;
+			try {
+				result = check(DETECTORS[i],ticks) ? "ok" : "FAILED, the burst never hit";
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				result = "FAILED, "+e;
+			}
+			System.out.println(String.format("%-6s %s",DETECTORS[i],result));
+			passed &= result.equals("ok");
+		}
+		System.exit(passed ? 0 : 1);
+	}
+}
@@ -0,0 +1,52 @@
+package com.ben.game;
+
+import java.util.ArrayList;
+
+/**
+ * A strategy for finding which entities in the game are colliding.
+ * The game tells the detector as entities come and go, and once a 
+ * tick asks it to find every colliding pair. Each pair found is
+ * notified through both entities' collidedWith().
+ * <p>
+ * Detectors may keep whatever structure they like between ticks, but
+ * must cope with the entity list being cleared part way through a
+ * search (e.g. a collision ending the level) and with entities being
+ * added during one (e.g. a collision response spawning something).
+ * An entity added during a search need not be tested until the next.
+ */
+public interface CollisionDetector {
+	/**
+	 * Notification that an entity has been added to the game
+	 * 
+	 * @param entity The entity added
+	 */
+	public void add(Entity entity);
+
+	/**
+	 * Notification that an entity has left the game
+	 * 
+	 * @param entity The entity removed
+	 */
+	public void remove(Entity entity);
+
+	/**
+	 * Notification that every entity has been removed from the game
+	 */
+	public void clear();
+
+	/**
+	 * Find every colliding pair of entities and notify both
+	 * entities in each pair.
+	 * 
+	 * @param entities The entities currently in the game
+	 */
+	public void findCollisions(ArrayList entities);
+
+	/**
+	 * Get the number of pairs passed to the narrowphase
+	 * (Entity.collidesWith) by the last search
+	 * 
+	 * @return The number of pairs tested
+	 */
+	public int getPairsTested();
+}
@@ -0,0 +1,16 @@
+package com.ben.game;
+
+/**
+ * What happens to one entity when it collides with another of a
+ * particular type. Responses are registered against a pair of entity
+ * type ids in {@link CollisionResponses}.
+ */
+public interface CollisionResponse {
+	/**
+	 * Apply the response
+	 * 
+	 * @param entity The entity responding to the collision
+	 * @param other The entity it collided with
+	 */
+	public void collided(Entity entity,Entity other);
+}
@@ -0,0 +1,67 @@
+package com.ben.game;
+
+/**
+ * The table of what happens when entities collide, indexed by the
+ * type ids of the two entities. Entry [a][b] is how an entity of type
+ * a responds to hitting one of type b, pairs with no entry do nothing.
+ * Looking the response up by type replaces the instanceof chains each
+ * entity used to walk through in collidedWith().
+ */
+public class CollisionResponses {
+	/** The responses, indexed by the type of the responding entity and then the other entity */
+	private static final CollisionResponse[][] responses = new CollisionResponse[Entity.TYPE_COUNT][Entity.TYPE_COUNT];
+
+	static {
+		// a shot kills an alien, or knocks the armor off an armored one
+
+		register(Entity.TYPE_SHOT,Entity.TYPE_ALIEN,new CollisionResponse() {
+			public void collided(Entity entity,Entity other) {
+				((ShotEntity) entity).hitAlien((AlienEntity) other);
+			}
+		});
+		register(Entity.TYPE_SHOT,Entity.TYPE_ARMORED_ALIEN,new CollisionResponse() {
+			public void collided(Entity entity,Entity other) {
+				((ShotEntity) entity).hitArmoredAlien((ArmoredAlienEntity) other);
+			}
+		});
+		register(Entity.TYPE_SHOT,Entity.TYPE_POWER_UP,new CollisionResponse() {
+			public void collided(Entity entity,Entity other) {
+				((ShotEntity) entity).hitPowerUp((PowerUpEntity) other);
+			}
+		});
+
+		// any alien reaching the ship kills the player
+
+		CollisionResponse shipHit = new CollisionResponse() {
+			public void collided(Entity entity,Entity other) {
+				((ShipEntity) entity).hitAlien();
+			}
+		};
+		register(Entity.TYPE_SHIP,Entity.TYPE_ALIEN,shipHit);
+		register(Entity.TYPE_SHIP,Entity.TYPE_ARMORED_ALIEN,shipHit);
+	}
+
+	/**
+	 * Set how entities of one type respond to hitting another type
+	 * 
+	 * @param type The type id of the responding entity
+	 * @param otherType The type id of the entity hit
+	 * @param response The response, or null for none
+	 */
+	public static void register(int type,int otherType,CollisionResponse response) {
+		responses[type][otherType] = response;
+	}
+
+	/**
+	 * Apply an entity's response to hitting another, if there is one
+	 * 
+	 * @param entity The entity responding
+	 * @param other The entity it hit
+	 */
+	public static void respond(Entity entity,Entity other) {
+		CollisionResponse response = responses[entity.getTypeId()][other.getTypeId()];
+		if (response != null) {
+			response.collided(entity,other);
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package com.ben.game;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+/**
+ * Draws a snapshot by repainting only the parts of the screen that have
+ * changed since the last frame, rather than clearing and redrawing the
+ * whole 800x600 back buffer every time. On software rendered pipelines
+ * the full frame clear is most of the cost of a frame, and while a
+ * dialogue is showing nothing changes at all.
+ * <p>
+ * The screen is split into tiles. Every frame each tile gets a hash of
+ * what is drawn over it: the sprite and location of every entity that
+ * touches it, the HUD values, the dialogue message and, while there are
+ * any particles, which particle update is showing. A tile whose
+ * hash differs from the last frame is dirty, which covers entities that
+ * moved (both where they were and where they are), appeared, vanished
+ * or changed sprite without having to track them from frame to frame.
+ * <p>
+ * With a double buffered strategy the back buffer holds the frame
+ * before last, so the tiles repainted are those dirty this frame or
+ * the last one. Dirty tiles are merged into rectangles, each of which
+ * is cleared and has the part of everything touching it drawn again.
+ * Sprites are cut to the rectangle by drawing a sub-rectangle of their
+ * image, which doesn't need a clip to be set up; text is clipped.
+ * <p>
+ * If no tile needs repainting the frame isn't drawn or presented.
+ */
+public class DirtyRegionRenderer {
+	/** The size of a tile in pixels */
+	private static final int TILE = 32;
+	/** The width of the screen */
+	private static final int WIDTH = 800;
+	/** The height of the screen */
+	private static final int HEIGHT = 600;
+	/** The number of columns of tiles */
+	private static final int COLUMNS = (WIDTH + TILE - 1) / TILE;
+	/** The number of rows of tiles */
+	private static final int ROWS = (HEIGHT + TILE - 1) / TILE;
+	/** The width of the area the HUD lines are drawn in */
+	private static final int HUD_WIDTH = 224;
+	/** The height of the area the HUD lines are drawn in */
+	private static final int HUD_HEIGHT = 52;
+	/** The top of the area the dialogue message is drawn in */
+	private static final int MESSAGE_TOP = 384;
+	/** The bottom of the area the dialogue message is drawn in */
+	private static final int MESSAGE_BOTTOM = 456;
+
+	/** The hash of what is drawn over each tile this frame */
+	private long[] hashes = new long[COLUMNS * ROWS];
+	/** The hash of what was drawn over each tile last frame */
+	private long[] lastHashes = new long[COLUMNS * ROWS];
+	/** True for each tile whose contents changed in the latest frame */
+	private boolean[] dirty = new boolean[COLUMNS * ROWS];
+	/** True for each tile that must be repainted this frame */
+	private boolean[] repaint = new boolean[COLUMNS * ROWS];
+	/** True if the whole screen must be repainted on the next frame */
+	private boolean invalid = true;
+	/** The number of tiles repainted in the last frame */
+	private int tilesRepainted;
+	/** The number of frames drawn */
+	private long framesDrawn;
+	/** The number of frames skipped since nothing had changed */
+	private long framesSkipped;
+	/** Draws the parts of the snapshot in each repainted rectangle */
+	private SnapshotRenderer renderer = new SnapshotRenderer();
+
+	/**
+	 * Force the whole screen to be repainted on the next frame, e.g.
+	 * because the contents of the back buffer were lost
+	 */
+	public void invalidate() {
+		invalid = true;
+	}
+
+	/**
+	 * Bring the back buffer up to date with a snapshot
+	 * 
+	 * @param g The graphics context of the back buffer
+	 * @param snapshot The snapshot to draw
+	 * @param alpha How far between the start and end of the tick to draw entities (0..1)
+	 * @return True if anything was drawn and the frame should be presented
+	 */
+	public boolean render(Graphics2D g,WorldSnapshot snapshot,double alpha) {
+		long[] swap = lastHashes;
+		lastHashes = hashes;
+		hashes = swap;
+		for (int i=0;i<hashes.length;i++) {
+			hashes[i] = 0;
+		}
+
+		// hash everything that will be drawn into the tiles it covers
+
+		for (int i=0;i<snapshot.count;i++) {
+			Sprite sprite = snapshot.sprites[i];
+			int x = snapshot.getDrawX(i,alpha);
+			int y = snapshot.getDrawY(i,alpha);
+			long hash = mix(mix(System.identityHashCode(sprite),x),y);
+			addHash(x,y,sprite.getWidth(),sprite.getHeight(),hash);
+		}
+		long hud = mix(mix(mix(1,snapshot.score.getValue()),snapshot.killed.getValue()),snapshot.aliens.getValue());
+		addHash(0,0,HUD_WIDTH,HUD_HEIGHT,hud);
+		if (snapshot.particleCount > 0) {
+			addHash(snapshot.particleMinX,snapshot.particleMinY,snapshot.particleMaxX - snapshot.particleMinX,
+					snapshot.particleMaxY - snapshot.particleMinY,mix(3,snapshot.particleUpdates));
+		}
+		if (snapshot.waitingForKeyPress) {
+			addHash(0,MESSAGE_TOP,WIDTH,MESSAGE_BOTTOM - MESSAGE_TOP,mix(2,snapshot.message.hashCode()));
+		}
+
+		// work out which tiles changed, and which need repainting in
+
+		// this buffer because they changed in this frame or the last
+
+		boolean overlay = snapshot.overlayVisible;
+		int overlayX0 = FrameProfiler.OVERLAY_X / TILE;
+		int overlayY0 = FrameProfiler.OVERLAY_Y / TILE;
+		int overlayX1 = Math.min(COLUMNS - 1,(FrameProfiler.OVERLAY_X + FrameProfiler.getOverlayWidth()) / TILE);
+		int overlayY1 = Math.min(ROWS - 1,(FrameProfiler.OVERLAY_Y + FrameProfiler.getOverlayHeight()) / TILE);
+		tilesRepainted = 0;
+		for (int row=0;row<ROWS;row++) {
+			for (int column=0;column<COLUMNS;column++) {
+				int t = (row * COLUMNS) + column;
+				boolean changed = hashes[t] != lastHashes[t];
+				if (overlay && column >= overlayX0 && column <= overlayX1 && row >= overlayY0 && row <= overlayY1) {
+					// the overlay is translucent and updates on its own, so
+
+					// keep it from building up over old copies of itself
+
+					changed = true;
+				}
+				repaint[t] = invalid || changed || dirty[t];
+				dirty[t] = changed || invalid;
+				if (repaint[t]) {
+					tilesRepainted++;
+				}
+			}
+		}
+		invalid = false;
+		if (tilesRepainted == 0) {
+			framesSkipped++;
+			return false;
+		}
+
+		renderer.rasterizeParticles(snapshot);
+
+		// merge the tiles into rectangles, widest first then as far
+
+		// down as the same columns keep needing a repaint
+
+		for (int row=0;row<ROWS;row++) {
+			for (int column=0;column<COLUMNS;column++) {
+				if (!repaint[(row * COLUMNS) + column]) {
+					continue;
+				}
+				int right = column + 1;
+				while (right < COLUMNS && repaint[(row * COLUMNS) + right]) {
+					right++;
+				}
+				int bottom = row + 1;
+				while (bottom < ROWS && spanSet(bottom,column,right)) {
+					bottom++;
+				}
+				for (int r=row;r<bottom;r++) {
+					for (int c=column;c<right;c++) {
+						repaint[(r * COLUMNS) + c] = false;
+					}
+				}
+				repaintRect(g,snapshot,alpha,column * TILE,row * TILE,(right - column) * TILE,(bottom - row) * TILE);
+			}
+		}
+
+		// the overlay's tiles were all repainted, so it can go over
+
+		// the top in one go
+
+		renderer.drawOverlay(g,snapshot);
+		framesDrawn++;
+		return true;
+	}
+
+	/**
+	 * Check if every tile in part of a row needs repainting
+	 * 
+	 * @param row The row to check
+	 * @param from The first column to check
+	 * @param to One past the last column to check
+	 * @return True if all the tiles need repainting
+	 */
+	private boolean spanSet(int row,int from,int to) {
+		for (int c=from;c<to;c++) {
+			if (!repaint[(row * COLUMNS) + c]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Clear a rectangle of the back buffer and draw everything touching it
+	 * 
+	 * @param g The graphics context of the back buffer
+	 * @param snapshot The snapshot to draw
+	 * @param alpha How far between the start and end of the tick to draw entities (0..1)
+	 * @param x The left of the rectangle
+	 * @param y The top of the rectangle
+	 * @param width The width of the rectangle
+	 * @param height The height of the rectangle
+	 */
+	private void repaintRect(Graphics2D g,WorldSnapshot snapshot,double alpha,int x,int y,int width,int height) {
+		g.setColor(Color.black);
+		g.fillRect(x,y,width,height);
+
+		if (x < HUD_WIDTH && y < HUD_HEIGHT) {
+			g.setClip(x,y,width,height);
+			renderer.drawHud(g,snapshot);
+			g.setClip(null);
+		}
+		for (int i=0;i<snapshot.count;i++) {
+			snapshot.sprites[i].draw(g,snapshot.getDrawX(i,alpha),snapshot.getDrawY(i,alpha),x,y,width,height);
+		}
+		renderer.drawParticles(g,x,y,width,height);
+		if (snapshot.waitingForKeyPress && y < MESSAGE_BOTTOM && y + height > MESSAGE_TOP) {
+			g.setClip(x,y,width,height);
+			renderer.drawMessage(g,snapshot);
+			g.setClip(null);
+		}
+	}
+
+	/**
+	 * Add the hash of something drawn to every tile it covers
+	 * 
+	 * @param x The left of the area drawn
+	 * @param y The top of the area drawn
+	 * @param width The width of the area drawn
+	 * @param height The height of the area drawn
+	 * @param hash The hash of what was drawn
+	 */
+	private void addHash(int x,int y,int width,int height,long hash) {
+		int column0 = Math.max(0,x / TILE);
+		int row0 = Math.max(0,y / TILE);
+		int column1 = Math.min(COLUMNS - 1,(x + width - 1) / TILE);
+		int row1 = Math.min(ROWS - 1,(y + height - 1) / TILE);
+		for (int row=row0;row<=row1;row++) {
+			for (int column=column0;column<=column1;column++) {
+				hashes[(row * COLUMNS) + column] += hash;
+			}
+		}
+	}
+
+	/**
+	 * Mix a value into a hash
+	 * 
+	 * @param hash The hash so far
+	 * @param value The value to add
+	 * @return The new hash
+	 */
+	private static long mix(long hash,long value) {
+		long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 29);
+	}
+
+	/**
+	 * Get the number of tiles repainted in the last frame drawn
+	 * 
+	 * @return The number of tiles
+	 */
+	public int getTilesRepainted() {
+		return tilesRepainted;
+	}
+
+	/**
+	 * Get the number of frames drawn
+	 * 
+	 * @return The number of frames
+	 */
+	public long getFramesDrawn() {
+		return framesDrawn;
+	}
+
+	/**
+	 * Get the number of frames skipped because nothing had changed
+	 * 
+	 * @return The number of frames
+	 */
+	public long getFramesSkipped() {
+		return framesSkipped;
+	}
+}
@@ -1,13 +1,16 @@
 package com.ben.game;
 
 import java.awt.Graphics;
-import java.awt.Rectangle;
 
 /**
  * An entity represents any element that appears in the game. The
  * entity is responsible for resolving collisions and movement
  * based on a set of properties defined either by subclass or externally.
  * 
+ * The state used by the simulation (position, velocity, sprite, type
+ * and movement flags) lives in the game's {@link EntityStore} rather 
+ * than in the entity itself, the entity is a view onto its slot there.
+ * 
  * Note that doubles are used for positions. This may seem strange
  * given that pixels locations are integers. However, using double means
  * that an entity can move a partial pixel. It doesn't of course mean that
@@ -17,45 +20,100 @@ import java.awt.Rectangle;
  * @author Kevin Glass
  */
 public abstract class Entity {
-	/** The current x location of this entity */ 
-	protected double x;
-	/** The current y location of this entity */
-	protected double y;
-	/** The sprite that represents this entity */
-	protected Sprite sprite;
-	/** The current speed of this entity horizontally (pixels/sec) */
-	protected double dx;
-	/** The current speed of this entity vertically (pixels/sec) */
-	protected double dy;
-	/** The rectangle used for this entity during collisions  resolution */
-	private Rectangle me = new Rectangle();
-	/** The rectangle used for other entities during collision resolution */
-	private Rectangle him = new Rectangle();
+	/** The type id of entities with no collision responses */
+	public static final int TYPE_NONE = 0;
+	/** The type id of the player's ships */
+	public static final int TYPE_SHIP = 1;
+	/** The type id of ordinary aliens */
+	public static final int TYPE_ALIEN = 2;
+	/** The type id of aliens that take two hits */
+	public static final int TYPE_ARMORED_ALIEN = 3;
+	/** The type id of power ups */
+	public static final int TYPE_POWER_UP = 4;
+	/** The type id of the player's shots */
+	public static final int TYPE_SHOT = 5;
+	/** The type id of score popups */
+	public static final int TYPE_SCORE = 6;
+	/** The number of entity type ids */
+	public static final int TYPE_COUNT = 7;
+
+	/** The collision layer of the player's ships */
+	public static final int LAYER_SHIP = 1;
+	/** The collision layer of aliens */
+	public static final int LAYER_ALIEN = 2;
+	/** The collision layer of power ups */
+	public static final int LAYER_POWER_UP = 4;
+	/** The collision layer of the player's shots */
+	public static final int LAYER_SHOT = 8;
+
+	/** The store holding this entity's simulation state */
+	protected EntityStore store;
+	/** This entity's slot in the store, -1 once the entity has been released */
+	protected int slot;
+	/** The collision layer this entity is on, 0 if it never collides */
+	int collisionLayer;
+	/** The layers this entity can collide with */
+	int collisionMask;
+	/** The first column of collision grid cells this entity is filed in, -1 if not in the grid */
+	int cellX0 = -1;
+	/** The first row of collision grid cells this entity is filed in */
+	int cellY0;
+	/** The last column of collision grid cells this entity is filed in */
+	int cellX1;
+	/** The last row of collision grid cells this entity is filed in */
+	int cellY1;
+	/** The position of this entity in the sweep and prune list, -1 if not in it */
+	int sweepIndex = -1;
+	/** The column this entity has in the alien formation, -1 if not in it */
+	int formationColumn = -1;
+	/** The row this entity has in the alien formation */
+	int formationRow = -1;
+	/** True if this entity is waiting in its pool to be reused */
+	boolean spare;
+	/** The pool this entity goes back to when it leaves the game, null if not pooled */
+	EntityPool pool;
 	
 	/**
-	 * Construct a entity based on a sprite image and a location.
+	 * Construct a entity based on a sprite image and a location. The 
+	 * entity's state is kept in a slot of the game's entity store.
 	 * 
+	 * @param game The game in which the entity is being created
 	 * @param ref The reference to the image to be displayed for this entity
  	 * @param x The initial x location of this entity
 	 * @param y The initial y location of this entity
 	 */
-	public Entity(String ref,int x,int y) {
-		this.sprite = SpriteStore.get().getSprite(ref);
-		this.x = x;
-		this.y = y;
+	public Entity(Game game,String ref,int x,int y) {
+		this(game,SpriteStore.get().getHandle(ref),x,y);
+	}
+
+	/**
+	 * Construct a entity based on a sprite that has already been
+	 * resolved to a handle, and a location.
+	 * 
+	 * @param game The game in which the entity is being created
+	 * @param sprite The handle of the sprite to be displayed for this entity
+ 	 * @param x The initial x location of this entity
+	 * @param y The initial y location of this entity
+	 */
+	public Entity(Game game,int sprite,int x,int y) {
+		this.store = game.getEntityStore();
+		this.slot = store.allocate(this);
+		store.sprite[slot] = SpriteStore.get().getSprite(sprite);
+		place(x,y);
 	}
 	
 	/**
 	 * Request that this entity move itself based on a certain ammount
-	 * of time passing.
+	 * of time passing. Most entities are moved in bulk by the store,
+	 * this is only called for those flagged FLAG_CUSTOM_MOVE.
 	 * 
 	 * @param delta The ammount of time that has passed in milliseconds
 	 */
-	public void move(long delta) {
+	public void move(double delta) {
 		// update the location of the entity based on move speeds
 
-		x += (delta * dx) / 1000;
-		y += (delta * dy) / 1000;
+		store.x[slot] += (delta * store.dx[slot]) / 1000;
+		store.y[slot] += (delta * store.dy[slot]) / 1000;
 	}
 	
 	/**
@@ -64,7 +122,7 @@ public abstract class Entity {
 	 * @param dx The horizontal speed of this entity (pixels/sec)
 	 */
 	public void setHorizontalMovement(double dx) {
-		this.dx = dx;
+		store.dx[slot] = dx;
 	}
 
 	/**
@@ -73,7 +131,7 @@ public abstract class Entity {
 	 * @param dx The vertical speed of this entity (pixels/sec)
 	 */
 	public void setVerticalMovement(double dy) {
-		this.dy = dy;
+		store.dy[slot] = dy;
 	}
 	
 	/**
@@ -82,7 +140,7 @@ public abstract class Entity {
 	 * @return The horizontal speed of this entity (pixels/sec)
 	 */
 	public double getHorizontalMovement() {
-		return dx;
+		return store.dx[slot];
 	}
 
 	/**
@@ -91,7 +149,7 @@ public abstract class Entity {
 	 * @return The vertical speed of this entity (pixels/sec)
 	 */
 	public double getVerticalMovement() {
-		return dy;
+		return store.dy[slot];
 	}
 	
 	/**
@@ -100,7 +158,56 @@ public abstract class Entity {
 	 * @param g The graphics context on which to draw
 	 */
 	public void draw(Graphics g) {
-		sprite.draw(g,(int) x,(int) y);
+		store.sprite[slot].draw(g,getX(),getY());
+	}
+
+	/**
+	 * Draw this entity at a position interpolated between where it was
+	 * at the start of the last simulation tick and where it is now. This
+	 * lets the renderer run at a different rate to the fixed simulation
+	 * step without entities visibly stuttering.
+	 * 
+	 * @param g The graphics context on which to draw
+	 * @param alpha How far between the last tick and the next one we are (0..1)
+	 */
+	public void draw(Graphics g,double alpha) {
+		double lastX = store.lastX[slot];
+		double lastY = store.lastY[slot];
+		store.sprite[slot].draw(g,(int) (lastX + (store.x[slot] - lastX) * alpha),(int) (lastY + (store.y[slot] - lastY) * alpha));
+	}
+
+	/**
+	 * Move this entity straight to a new location, with nothing to
+	 * interpolate from. Used when an entity is created or reused.
+	 * 
+	 * @param x The new x location
+	 * @param y The new y location
+	 */
+	void place(double x,double y) {
+		store.x[slot] = x;
+		store.y[slot] = y;
+		store.lastX[slot] = x;
+		store.lastY[slot] = y;
+	}
+
+	/**
+	 * Shift this entity by a fixed amount, e.g. when the aliens drop
+	 * down a row
+	 * 
+	 * @param dx The distance to move horizontally
+	 * @param dy The distance to move vertically
+	 */
+	protected void translate(double dx,double dy) {
+		store.x[slot] += dx;
+		store.y[slot] += dy;
+	}
+
+	/**
+	 * Record the current location as the start point for interpolation.
+	 */
+	public void savePosition() {
+		store.lastX[slot] = store.x[slot];
+		store.lastY[slot] = store.y[slot];
 	}
 	
 	/**
@@ -116,7 +223,7 @@ public abstract class Entity {
 	 * @return The x location of this entity
 	 */
 	public int getX() {
-		return (int) x;
+		return (int) store.x[slot];
 	}
 
 	/**
@@ -125,27 +232,222 @@ public abstract class Entity {
 	 * @return The y location of this entity
 	 */
 	public int getY() {
-		return (int) y;
+		return (int) store.y[slot];
+	}
+
+	/**
+	 * Get the x location of this entity, including any partial pixel
+	 * 
+	 * @return The x location of this entity
+	 */
+	public double getExactX() {
+		return store.x[slot];
+	}
+
+	/**
+	 * Get the y location of this entity, including any partial pixel
+	 * 
+	 * @return The y location of this entity
+	 */
+	public double getExactY() {
+		return store.y[slot];
+	}
+
+	/**
+	 * Get the sprite currently representing this entity
+	 * 
+	 * @return The sprite
+	 */
+	public Sprite getSprite() {
+		return store.sprite[slot];
+	}
+
+	/**
+	 * Change the sprite representing this entity
+	 * 
+	 * @param sprite The new sprite
+	 */
+	protected void setSprite(Sprite sprite) {
+		if (isInGame()) {
+			removeUser(store.sprite[slot]);
+			addUser(sprite);
+		}
+		store.sprite[slot] = sprite;
+	}
+
+	/**
+	 * Get the type of this entity, used to look up collision responses
+	 * 
+	 * @return The type id, one of the TYPE_ constants
+	 */
+	public int getTypeId() {
+		return store.type[slot];
+	}
+
+	/**
+	 * Set the type of this entity
+	 * 
+	 * @param type The type id, one of the TYPE_ constants
+	 */
+	protected void setTypeId(int type) {
+		store.type[slot] = type;
+	}
+
+	/**
+	 * Turn on some of the movement flags in the store for this entity
+	 * 
+	 * @param flags The EntityStore.FLAG_ flags to set
+	 */
+	protected void addFlags(int flags) {
+		store.flags[slot] |= flags;
+	}
+
+	/**
+	 * Check if this entity is currently in the game
+	 * 
+	 * @return True if the entity is moving, drawing and colliding
+	 */
+	public boolean isInGame() {
+		return slot >= 0 && (store.flags[slot] & EntityStore.FLAG_IN_GAME) != 0;
+	}
+
+	/**
+	 * Mark this entity as in or out of the game
+	 * 
+	 * @param inGame True if the entity is in the game
+	 */
+	void setInGame(boolean inGame) {
+		// the sprite's atlas counts us while we're in the game, so it
+
+		// isn't evicted from under us
+
+		if (inGame != isInGame()) {
+			if (inGame) {
+				addUser(store.sprite[slot]);
+			} else {
+				removeUser(store.sprite[slot]);
+			}
+		}
+		if (inGame) {
+			store.flags[slot] |= EntityStore.FLAG_IN_GAME;
+		} else {
+			store.flags[slot] &= ~(EntityStore.FLAG_IN_GAME | EntityStore.FLAG_REMOVED);
+		}
+	}
+
+	/**
+	 * Count this entity as a user of a sprite's atlas
+	 * 
+	 * @param sprite The sprite being shown
+	 */
+	private static void addUser(Sprite sprite) {
+		if (sprite != null && sprite.atlas != null) {
+			sprite.atlas.addUser();
+		}
+	}
+
+	/**
+	 * Stop counting this entity as a user of a sprite's atlas
+	 * 
+	 * @param sprite The sprite no longer shown
+	 */
+	private static void removeUser(Sprite sprite) {
+		if (sprite != null && sprite.atlas != null) {
+			sprite.atlas.removeUser();
+		}
+	}
+
+	/**
+	 * Mark this entity to be taken out of the game at the end of the
+	 * tick. Marking an entity twice, or one that has already left the
+	 * game, does nothing.
+	 * 
+	 * @return True if the entity was newly marked
+	 */
+	boolean markRemoved() {
+		if (!isInGame()) {
+			return false;
+		}
+		int flags = store.flags[slot];
+		if ((flags & EntityStore.FLAG_REMOVED) != 0) {
+			return false;
+		}
+		store.flags[slot] = flags | EntityStore.FLAG_REMOVED;
+		return true;
+	}
+
+	/**
+	 * Check if this entity has been marked to be taken out of the game
+	 * 
+	 * @return True if the entity will be removed at the end of the tick
+	 */
+	boolean isRemoved() {
+		return slot >= 0 && (store.flags[slot] & EntityStore.FLAG_REMOVED) != 0;
+	}
+
+	/**
+	 * Give this entity's slot back to the store. The entity can't be
+	 * used afterwards.
+	 */
+	void release() {
+		store.release(slot);
+		slot = -1;
 	}
 	
 	/**
-	 * Check if this entity collised with another.
+	 * Check if this entity takes part in collisions at all. Entities
+	 * that don't are left out of collision detection entirely.
+	 * 
+	 * @return True if the entity is on a collision layer
+	 */
+	public boolean isCollidable() {
+		return collisionLayer != 0;
+	}
+
+	/**
+	 * Check if a collision between this entity and another could have
+	 * any effect, based on their collision layers and masks. Pairs that
+	 * can't interact are skipped before their bounds are tested.
+	 * 
+	 * @param other The other entity
+	 * @return True if either entity's mask includes the other's layer
+	 */
+	public boolean canCollideWith(Entity other) {
+		return (collisionMask & other.collisionLayer) != 0 || (other.collisionMask & collisionLayer) != 0;
+	}
+
+	/**
+	 * Check if this entity collised with another. The bounding boxes
+	 * are checked first, and only if they overlap are the sprites'
+	 * pixel masks compared, so transparent corners don't count as hits.
 	 * 
 	 * @param other The other entity to check collision against
 	 * @return True if the entities collide with each other
 	 */
 	public boolean collidesWith(Entity other) {
-		me.setBounds((int) x,(int) y,sprite.getWidth(),sprite.getHeight());
-		him.setBounds((int) other.x,(int) other.y,other.sprite.getWidth(),other.sprite.getHeight());
+		int myX = getX();
+		int myY = getY();
+		int hisX = other.getX();
+		int hisY = other.getY();
+		Sprite sprite = getSprite();
+		Sprite hisSprite = other.getSprite();
 
-		return me.intersects(him);
+		if (myX >= hisX + hisSprite.getWidth() || hisX >= myX + sprite.getWidth() ||
+				myY >= hisY + hisSprite.getHeight() || hisY >= myY + sprite.getHeight()) {
+			return false;
+		}
+		return Sprite.masksOverlap(sprite,myX,myY,hisSprite,hisX,hisY);
 	}
 	
 	/**
-	 * Notification that this entity collided with another.
+	 * Notification that this entity collided with another. By default
+	 * the response is looked up in the {@link CollisionResponses} table
+	 * by the types of the two entities.
 	 * 
 	 * @param other The entity with which this entity collided.
 	 */
-	public abstract void collidedWith(Entity other);
+	public void collidedWith(Entity other) {
+		CollisionResponses.respond(this,other);
+	}
 }
 
@@ -0,0 +1,111 @@
+package com.ben.game;
+
+/**
+ * The number of entities of each type currently in the game. The counts
+ * are kept up to date as entities are added and removed, so finding out
+ * whether any aliens are left (or how many shots are in flight) never
+ * needs a pass over the entities.
+ * <p>
+ * Only the game changes the counts, everything else can just read them.
+ */
+public class EntityCounts {
+	/** The number of live entities of each type id */
+	private final int[] live = new int[Entity.TYPE_COUNT];
+	/** The number of live entities of all types */
+	private int total;
+
+	/**
+	 * Count an entity that has joined the game
+	 * 
+	 * @param entity The entity added
+	 */
+	void added(Entity entity) {
+		live[entity.getTypeId()]++;
+		total++;
+	}
+
+	/**
+	 * Count an entity that has left the game
+	 * 
+	 * @param entity The entity removed
+	 */
+	void removed(Entity entity) {
+		live[entity.getTypeId()]--;
+		total--;
+	}
+
+	/**
+	 * Reset every count to zero, used when the whole level is cleared
+	 */
+	void clear() {
+		for (int i=0;i<live.length;i++) {
+			live[i] = 0;
+		}
+		total = 0;
+	}
+
+	/**
+	 * Get the number of live entities of a type
+	 * 
+	 * @param type The type id, one of the Entity.TYPE_ constants
+	 * @return The number in the game
+	 */
+	public int get(int type) {
+		return live[type];
+	}
+
+	/**
+	 * Get the number of aliens left, armored or not. The level is won
+	 * when this reaches zero.
+	 * 
+	 * @return The number of aliens in the game
+	 */
+	public int getAliens() {
+		return live[Entity.TYPE_ALIEN] + live[Entity.TYPE_ARMORED_ALIEN];
+	}
+
+	/**
+	 * Get the number of armored aliens left
+	 * 
+	 * @return The number of armored aliens in the game
+	 */
+	public int getArmoredAliens() {
+		return live[Entity.TYPE_ARMORED_ALIEN];
+	}
+
+	/**
+	 * Get the number of power ups left
+	 * 
+	 * @return The number of power ups in the game
+	 */
+	public int getPowerUps() {
+		return live[Entity.TYPE_POWER_UP];
+	}
+
+	/**
+	 * Get the number of shots in flight
+	 * 
+	 * @return The number of shots in the game
+	 */
+	public int getShots() {
+		return live[Entity.TYPE_SHOT];
+	}
+
+	/**
+	 * Get the number of score popups showing
+	 * 
+	 * @return The number of popups in the game
+	 */
+	public int getScorePopups() {
+		return live[Entity.TYPE_SCORE];
+	}
+
+	/**
+	 * Get the number of entities in the game
+	 * 
+	 * @return The number of entities of every type
+	 */
+	public int getTotal() {
+		return total;
+	}
+}
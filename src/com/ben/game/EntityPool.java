@@ -0,0 +1,151 @@
+package com.ben.game;
+
+import java.util.Arrays;
+
+/**
+ * A bounded pool of one kind of entity. Entities leaving the game are
+ * handed back to their pool and reused the next time one is needed,
+ * so steady play doesn't produce garbage. A pooled entity keeps its
+ * slot in the entity store while it waits. If the pool is already full
+ * when an entity comes back, that entity gives its slot up and is left
+ * for the garbage collector instead.
+ * 
+ * @param <T> The kind of entity pooled
+ */
+public class EntityPool<T extends Entity> {
+	/**
+	 * Makes new entities for a pool when it has none spare
+	 * 
+	 * @param <T> The kind of entity made
+	 */
+	public interface Factory<T extends Entity> {
+		/**
+		 * Create a new entity. The caller resets it before use, so its
+		 * initial location and settings don't matter.
+		 * 
+		 * @return The new entity
+		 */
+		public T create();
+	}
+
+	/** The name of the pool, used when reporting */
+	private final String name;
+	/** Makes entities when the pool is empty */
+	private final Factory<T> factory;
+	/** The entities waiting to be reused */
+	private Entity[] spares;
+	/** The number of entities waiting */
+	private int count;
+	/** The number of entities the factory has been asked for */
+	private int created;
+	/** The number of times a spare entity was reused */
+	private long reused;
+	/** The number of entities turned away because the pool was full */
+	private int discarded;
+
+	/**
+	 * Create a new pool
+	 * 
+	 * @param name The name of the pool, used when reporting
+	 * @param capacity The most spare entities the pool will hold
+	 * @param factory Makes new entities when there are no spares
+	 */
+	public EntityPool(String name,int capacity,Factory<T> factory) {
+		this.name = name;
+		this.factory = factory;
+		this.spares = new Entity[capacity];
+	}
+
+	/**
+	 * Make entities up front so they don't have to be made during play
+	 * 
+	 * @param number The number of entities to make, limited to the capacity
+	 */
+	public void prefill(int number) {
+		while (count < number && count < spares.length) {
+			release(newEntity());
+		}
+	}
+
+	/**
+	 * Let the pool hold more spare entities, e.g. enough for the
+	 * largest wave of a level. Never shrinks the pool.
+	 * 
+	 * @param capacity The most spare entities the pool should hold
+	 */
+	public void reserve(int capacity) {
+		if (capacity > spares.length) {
+			spares = Arrays.copyOf(spares,capacity);
+		}
+	}
+
+	/**
+	 * Get an entity, reusing a spare one if there is one. The caller
+	 * must reset it before adding it to the game.
+	 * 
+	 * @return The entity
+	 */
+	public T acquire() {
+		if (count == 0) {
+			return newEntity();
+		}
+		Entity entity = spares[--count];
+		spares[count] = null;
+		entity.spare = false;
+		reused++;
+		return cast(entity);
+	}
+
+	/**
+	 * Give an entity back to the pool once it has left the game. Safe
+	 * to call more than once for the same entity.
+	 * 
+	 * @param entity The entity to give back
+	 */
+	public void release(Entity entity) {
+		if (entity.spare) {
+			return;
+		}
+		if (count == spares.length) {
+			entity.pool = null;
+			entity.release();
+			discarded++;
+			return;
+		}
+		entity.spare = true;
+		spares[count++] = entity;
+	}
+
+	/**
+	 * Describe how the pool has been used
+	 * 
+	 * @return The name of the pool with its counts
+	 */
+	public String getStats() {
+		return name+": "+created+" created, "+reused+" reused, "+discarded+" discarded, "+count+" spare";
+	}
+
+	/**
+	 * Make a new entity belonging to this pool
+	 * 
+	 * @return The new entity
+	 */
+	private T newEntity() {
+		T entity = factory.create();
+		entity.pool = this;
+		created++;
+		return entity;
+	}
+
+	/**
+	 * Cast a spare back to the pooled type. Only entities made by this
+	 * pool's factory are ever held, so this can't fail.
+	 * 
+	 * @param entity The spare entity
+	 * @return The same entity as the pooled type
+	 */
+	@SuppressWarnings("unchecked")
+	private T cast(Entity entity) {
+		return (T) entity;
+	}
+}
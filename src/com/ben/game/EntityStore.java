@@ -0,0 +1,189 @@
+package com.ben.game;
+
+import java.util.Arrays;
+
+/**
+ * The simulation state of every entity, held as a structure of arrays.
+ * Each entity owns a slot and its position, velocity, sprite, type and
+ * flags live at that index in plain primitive arrays, with the Entity
+ * object itself acting as a view onto its slot. Moving every entity is
+ * then a tight loop over contiguous arrays instead of a virtual move()
+ * call on each object.
+ * <p>
+ * The common movement behaviours are described by flags so the loop
+ * can apply them inline. Entities with movement rules of their own
+ * (e.g. the player's ship) set FLAG_CUSTOM_MOVE and have their move()
+ * method called instead.
+ * <p>
+ * Slots are reused once released, so the arrays only grow to the
+ * largest number of entities alive at once.
+ */
+public class EntityStore {
+	/** The entity is in the game, so moves, draws and collides */
+	public static final int FLAG_IN_GAME = 1;
+	/** The entity asks for a logic update when it reaches the side of the screen */
+	public static final int FLAG_EDGE_TRIGGER = 2;
+	/** The entity removes itself once it has moved off the top of the screen */
+	public static final int FLAG_CULL_ABOVE = 4;
+	/** The entity moves itself through Entity.move() */
+	public static final int FLAG_CUSTOM_MOVE = 8;
+	/** The entity has been marked for removal at the end of the tick */
+	public static final int FLAG_REMOVED = 16;
+	/** The entity moves with the alien formation rather than by its own speed */
+	public static final int FLAG_FORMATION = 32;
+
+	/** The number of slots to start with */
+	private static final int INITIAL_CAPACITY = 256;
+
+	/** The x location of each entity */
+	double[] x = new double[INITIAL_CAPACITY];
+	/** The y location of each entity */
+	double[] y = new double[INITIAL_CAPACITY];
+	/** The x location of each entity at the start of the current tick */
+	double[] lastX = new double[INITIAL_CAPACITY];
+	/** The y location of each entity at the start of the current tick */
+	double[] lastY = new double[INITIAL_CAPACITY];
+	/** The horizontal speed of each entity (pixels/sec) */
+	double[] dx = new double[INITIAL_CAPACITY];
+	/** The vertical speed of each entity (pixels/sec) */
+	double[] dy = new double[INITIAL_CAPACITY];
+	/** The sprite each entity is showing */
+	Sprite[] sprite = new Sprite[INITIAL_CAPACITY];
+	/** The type id of each entity */
+	int[] type = new int[INITIAL_CAPACITY];
+	/** The flags of each entity */
+	int[] flags = new int[INITIAL_CAPACITY];
+	/** The entity owning each slot */
+	Entity[] views = new Entity[INITIAL_CAPACITY];
+
+	/** One past the highest slot ever handed out */
+	private int highWater;
+	/** Released slots waiting to be handed out again */
+	private int[] free = new int[INITIAL_CAPACITY];
+	/** The number of released slots */
+	private int freeCount;
+
+	/**
+	 * Give an entity a slot
+	 * 
+	 * @param view The entity the slot is for
+	 * @return The slot
+	 */
+	int allocate(Entity view) {
+		int slot;
+		if (freeCount > 0) {
+			slot = free[--freeCount];
+		} else {
+			if (highWater == x.length) {
+				grow();
+			}
+			slot = highWater++;
+		}
+		x[slot] = 0;
+		y[slot] = 0;
+		lastX[slot] = 0;
+		lastY[slot] = 0;
+		dx[slot] = 0;
+		dy[slot] = 0;
+		sprite[slot] = null;
+		type[slot] = Entity.TYPE_NONE;
+		flags[slot] = 0;
+		views[slot] = view;
+		return slot;
+	}
+
+	/**
+	 * Give a slot back once its entity is finished with. The entity
+	 * can't be used afterwards.
+	 * 
+	 * @param slot The slot to release
+	 */
+	void release(int slot) {
+		flags[slot] = 0;
+		sprite[slot] = null;
+		views[slot] = null;
+		free[freeCount++] = slot;
+	}
+
+	/**
+	 * Record every entity's current location as the start point for
+	 * interpolation.
+	 */
+	public void savePositions() {
+		System.arraycopy(x,0,lastX,0,highWater);
+		System.arraycopy(y,0,lastY,0,highWater);
+	}
+
+	/**
+	 * Move every entity in the game based on a certain amount of time
+	 * passing, applying the movement behaviours given by their flags.
+	 * 
+	 * @param game The game to notify of edge hits and removals, and whose formation to move with
+	 * @param delta The ammount of time that has passed in milliseconds
+	 */
+	public void move(Game game,double delta) {
+		double seconds = delta / 1000;
+		Formation formation = game.getFormation();
+		double formationX = formation.getStepX();
+		double formationY = formation.getStepY();
+		for (int i=0;i<highWater;i++) {
+			int f = flags[i];
+			if ((f & FLAG_IN_GAME) == 0) {
+				continue;
+			}
+			if ((f & FLAG_CUSTOM_MOVE) != 0) {
+				views[i].move(delta);
+				continue;
+			}
+			if ((f & FLAG_FORMATION) != 0) {
+				x[i] += formationX;
+				y[i] += formationY;
+				continue;
+			}
+
+			// if we have reached the side of the screen and are still
+
+			// heading that way request a logic update
+
+			if ((f & FLAG_EDGE_TRIGGER) != 0 && ((dx[i] < 0 && x[i] < 10) || (dx[i] > 0 && x[i] > 750))) {
+				game.updateLogic();
+			}
+
+			x[i] += dx[i] * seconds;
+			y[i] += dy[i] * seconds;
+
+			// if we moved off the top of the screen, remove ourselves
+
+			if ((f & FLAG_CULL_ABOVE) != 0 && y[i] < -100) {
+				game.removeEntity(views[i]);
+			}
+		}
+	}
+
+	/**
+	 * Get one past the highest slot in use
+	 * 
+	 * @return The number of slots to scan
+	 */
+	public int getHighWater() {
+		return highWater;
+	}
+
+	/**
+	 * Double the size of every array
+	 */
+	private void grow() {
+		int capacity = x.length * 2;
+		x = Arrays.copyOf(x,capacity);
+		y = Arrays.copyOf(y,capacity);
+		lastX = Arrays.copyOf(lastX,capacity);
+		lastY = Arrays.copyOf(lastY,capacity);
+		dx = Arrays.copyOf(dx,capacity);
+		dy = Arrays.copyOf(dy,capacity);
+		sprite = Arrays.copyOf(sprite,capacity);
+		type = Arrays.copyOf(type,capacity);
+		flags = Arrays.copyOf(flags,capacity);
+		views = Arrays.copyOf(views,capacity);
+		free = Arrays.copyOf(free,capacity);
+	}
+}
@@ -8,7 +8,7 @@ public class FastAlienEntity extends AlienEntity {
 	
 	public FastAlienEntity(Game game, String ref, int x, int y) {
 		super(game, ref, x, y);
-		dx = -moveSpeed;
+		setHorizontalMovement(-moveSpeed);
 	}
 	
 
@@ -0,0 +1,264 @@
+package com.ben.game;
+
+import java.util.Arrays;
+
+/**
+ * The block of aliens (and the power ups flying with them) that sweeps
+ * back and forth across the screen, dropping a row each time it reaches
+ * a side. Every member moves in lockstep, so rather than each one
+ * checking the edges and then being told to turn round, the formation
+ * keeps a single offset and velocity for the whole block.
+ * <p>
+ * Members sit on a grid of columns and rows. The formation counts the
+ * live members in each column and row, so the leftmost and rightmost
+ * live columns and the lowest live row are always known. The edges of
+ * the block can then be checked in constant time however many aliens
+ * are left, and the block turns exactly at the edge of the screen
+ * rather than a frame past it.
+ */
+public class Formation {
+	/** The left most x a member may reach before the block turns */
+	private static final int LEFT_EDGE = 10;
+	/** The right most x a member may reach before the block turns */
+	private static final int RIGHT_EDGE = 750;
+	/** The distance the block drops each time it turns */
+	private static final int DESCENT = 10;
+	/** The y at which the block has reached the player */
+	private static final int LANDING = 570;
+
+	/** The x location of column 0 at the start of the level */
+	private int originX;
+	/** The y location of row 0 at the start of the level */
+	private int originY;
+	/** The distance between columns */
+	private int columnSpacing;
+	/** The distance between rows */
+	private int rowSpacing;
+	/** The distance the block has moved horizontally since the level started */
+	private double offsetX;
+	/** The distance the block has dropped since the level started */
+	private double offsetY;
+	/** The speed the block started the level at (pixels/sec) */
+	private double speed;
+	/** The amount the starting speed is scaled by, see {@link SpeedModifiers} */
+	private double speedScale = 1;
+	/** The direction the block is moving, -1 for left or 1 for right */
+	private int direction;
+	/** The horizontal distance moved this tick */
+	private double stepX;
+	/** The vertical distance moved this tick */
+	private double stepY;
+	/** The number of live members in each column */
+	private int[] columnCounts = new int[16];
+	/** The number of live members in each row */
+	private int[] rowCounts = new int[16];
+	/** The left most column with a live member */
+	private int leftColumn;
+	/** The right most column with a live member */
+	private int rightColumn;
+	/** The lowest row with a live member */
+	private int bottomRow;
+	/** The number of live members */
+	private int live;
+	/** True if the block has dropped far enough to reach the player */
+	private boolean landed;
+
+	/**
+	 * Empty the formation and lay out a new grid for the next level
+	 * 
+	 * @param originX The x location of column 0
+	 * @param originY The y location of row 0
+	 * @param columnSpacing The distance between columns
+	 * @param rowSpacing The distance between rows
+	 * @param speed The speed the block starts moving left at (pixels/sec)
+	 */
+	public void reset(int originX,int originY,int columnSpacing,int rowSpacing,double speed) {
+		this.originX = originX;
+		this.originY = originY;
+		this.columnSpacing = columnSpacing;
+		this.rowSpacing = rowSpacing;
+		clear();
+		this.speed = speed;
+		direction = -1;
+	}
+
+	/**
+	 * Remove every member, leaving an empty formation that doesn't move
+	 */
+	public void clear() {
+		Arrays.fill(columnCounts,0);
+		Arrays.fill(rowCounts,0);
+		offsetX = 0;
+		offsetY = 0;
+		speed = 0;
+		speedScale = 1;
+		direction = 0;
+		stepX = 0;
+		stepY = 0;
+		live = 0;
+		landed = false;
+	}
+
+	/**
+	 * Add an entity to the block. The entity should already be at its
+	 * grid location, from then on it moves with the block and no longer
+	 * looks for the edges of the screen itself.
+	 * 
+	 * @param entity The entity to add
+	 * @param column The column the entity is in
+	 * @param row The row the entity is in
+	 */
+	public void add(Entity entity,int column,int row) {
+		if (column >= columnCounts.length) {
+			columnCounts = Arrays.copyOf(columnCounts,Math.max(column + 1,columnCounts.length * 2));
+		}
+		if (row >= rowCounts.length) {
+			rowCounts = Arrays.copyOf(rowCounts,Math.max(row + 1,rowCounts.length * 2));
+		}
+		if (live == 0) {
+			leftColumn = column;
+			rightColumn = column;
+			bottomRow = row;
+		} else {
+			leftColumn = Math.min(leftColumn,column);
+			rightColumn = Math.max(rightColumn,column);
+			bottomRow = Math.max(bottomRow,row);
+		}
+		columnCounts[column]++;
+		rowCounts[row]++;
+		live++;
+
+		entity.formationColumn = column;
+		entity.formationRow = row;
+		entity.store.flags[entity.slot] = (entity.store.flags[entity.slot] & ~EntityStore.FLAG_EDGE_TRIGGER)
+				| EntityStore.FLAG_FORMATION;
+	}
+
+	/**
+	 * Take an entity out of the block, moving the edges in if it was
+	 * the last one in its column or row. The entity goes back to
+	 * checking the edges of the screen for itself.
+	 * 
+	 * @param entity The entity to remove
+	 */
+	public void remove(Entity entity) {
+		int column = entity.formationColumn;
+		int row = entity.formationRow;
+		entity.formationColumn = -1;
+		entity.formationRow = -1;
+		if (entity.slot >= 0) {
+			entity.store.flags[entity.slot] = (entity.store.flags[entity.slot] & ~EntityStore.FLAG_FORMATION)
+					| EntityStore.FLAG_EDGE_TRIGGER;
+		}
+
+		live--;
+		columnCounts[column]--;
+		rowCounts[row]--;
+		if (live == 0) {
+			return;
+		}
+		while (columnCounts[leftColumn] == 0) {
+			leftColumn++;
+		}
+		while (columnCounts[rightColumn] == 0) {
+			rightColumn--;
+		}
+		while (rowCounts[bottomRow] == 0) {
+			bottomRow--;
+		}
+	}
+
+	/**
+	 * Work out how far the block moves this tick. If the block would
+	 * pass the edge of the screen it stops at the edge, turns round and
+	 * drops a row.
+	 * 
+	 * @param delta The ammount of time that has passed in milliseconds
+	 */
+	public void step(double delta) {
+		double velocity = getVelocity();
+		stepX = velocity * delta / 1000;
+		stepY = 0;
+		if (live == 0) {
+			return;
+		}
+
+		double left = originX + (leftColumn * columnSpacing) + offsetX;
+		double right = originX + (rightColumn * columnSpacing) + offsetX;
+		if (velocity < 0 && left + stepX < LEFT_EDGE) {
+			stepX = Math.min(0,LEFT_EDGE - left);
+			turn();
+		} else if (velocity > 0 && right + stepX > RIGHT_EDGE) {
+			stepX = Math.max(0,RIGHT_EDGE - right);
+			turn();
+		}
+		offsetX += stepX;
+	}
+
+	/**
+	 * Reverse the block and drop it a row, noting if it has now reached
+	 * the player
+	 */
+	private void turn() {
+		direction = -direction;
+		stepY = DESCENT;
+		offsetY += DESCENT;
+		if (originY + (bottomRow * rowSpacing) + offsetY > LANDING) {
+			landed = true;
+		}
+	}
+
+	/**
+	 * Set the amount the block's starting speed is scaled by
+	 * 
+	 * @param scale The speed scale, 1 for the starting speed
+	 */
+	public void setSpeedScale(double scale) {
+		speedScale = scale;
+	}
+
+	/**
+	 * Get the horizontal distance the block moves this tick
+	 * 
+	 * @return The distance in pixels
+	 */
+	public double getStepX() {
+		return stepX;
+	}
+
+	/**
+	 * Get the vertical distance the block moves this tick
+	 * 
+	 * @return The distance in pixels
+	 */
+	public double getStepY() {
+		return stepY;
+	}
+
+	/**
+	 * Get the horizontal speed of the block
+	 * 
+	 * @return The speed in pixels/sec, negative when moving left
+	 */
+	public double getVelocity() {
+		return direction * speed * speedScale;
+	}
+
+	/**
+	 * Get the number of live members in the block
+	 * 
+	 * @return The number of members
+	 */
+	public int getLiveCount() {
+		return live;
+	}
+
+	/**
+	 * Check if the block has dropped far enough to reach the player
+	 * 
+	 * @return True if the player has been overrun
+	 */
+	public boolean hasLanded() {
+		return landed;
+	}
+}
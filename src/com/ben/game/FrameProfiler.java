@@ -0,0 +1,566 @@
+package com.ben.game;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Times how each frame's budget is split between the phases of the
+ * game loop. The loop marks the end of each phase and the time since
+ * the previous mark is added to that phase for the current frame. At
+ * the end of the frame the totals go into a rolling histogram per
+ * phase, can be shown as an overlay next to the HUD and can be written
+ * out as one CSV row per frame.
+ * <p>
+ * Recording, the overlay and CSV output allocate nothing once the
+ * profiler is running, so turning it on doesn't disturb what it measures.
+ * <p>
+ * A profiler is only used by the game loop thread. Work done on other
+ * threads is recorded into {@link FrameStats} and added with
+ * {@link #add(FrameStats)}, and the overlay is drawn from a copy of its
+ * text taken with {@link #copyOverlay(char[][])}.
+ */
+public class FrameProfiler {
+	/** Moving every entity */
+	public static final int MOVE = 0;
+	/** Checking whether any aliens are left on screen */
+	public static final int ALIEN_SCAN = 1;
+	/** Collision detection and response */
+	public static final int COLLIDE = 2;
+	/** Removing dead entities */
+	public static final int REMOVE = 3;
+	/** Running entity logic after a game event */
+	public static final int LOGIC = 4;
+	/** Updating the particles */
+	public static final int PARTICLES = 5;
+	/** Drawing the frame into the back buffer */
+	public static final int DRAW = 6;
+	/** Flipping the back buffer to the screen */
+	public static final int PRESENT = 7;
+	/** The whole frame, start to start */
+	public static final int FRAME = 8;
+	/** The number of phases tracked */
+	public static final int PHASES = 9;
+	/** The names of the phases, used for the overlay and CSV header */
+	private static final String[] NAMES = {"move","alienScan","collide","remove","logic","particles","draw","present","frame"};
+	/** The number of entity pairs passed to collision narrowphase */
+	public static final int PAIRS_TESTED = 0;
+	/** The number of entities in the game at the end of the frame */
+	public static final int ENTITIES = 1;
+	/** The number of tiles repainted by the dirty region renderer */
+	public static final int TILES_REPAINTED = 2;
+	/** The number of sprites drawn from images held by the graphics hardware */
+	public static final int ACCELERATED_BLITS = 3;
+	/** The number of sprites drawn from images the hardware doesn't hold */
+	public static final int SOFTWARE_BLITS = 4;
+	/** The number of live particles at the end of the frame */
+	public static final int PARTICLE_COUNT = 5;
+	/** The number of counters tracked */
+	public static final int COUNTERS = 6;
+	/** The names of the counters, used for the overlay and CSV header */
+	private static final String[] COUNTER_NAMES = {"pairs","entities","tiles","accelBlits","softBlits","particles"};
+
+	/** The number of frames each histogram describes */
+	private static final int WINDOW = 256;
+	/** The number of frames between overlay text refreshes */
+	private static final int OVERLAY_REFRESH = 30;
+	/** The width of a column in the overlay, in characters */
+	private static final int COLUMN = 9;
+	/** The background of the overlay */
+	private static final Color OVERLAY_BACKGROUND = new Color(0,0,0,160);
+	/** The x location of the overlay's background */
+	static final int OVERLAY_X = 140;
+	/** The y location of the overlay's background */
+	static final int OVERLAY_Y = 2;
+
+	/** True if timings are being recorded */
+	private boolean enabled;
+	/** True if the overlay should be drawn */
+	private boolean overlayVisible;
+	/** A histogram of recent frames for each phase */
+	private final RollingHistogram[] histograms = new RollingHistogram[PHASES];
+	/** The time spent in each phase so far this frame (ns) */
+	private final long[] current = new long[PHASES];
+	/** A histogram of recent frames for each counter */
+	private final RollingHistogram[] counterHistograms = new RollingHistogram[COUNTERS];
+	/** The value of each counter so far this frame */
+	private final long[] counters = new long[COUNTERS];
+	/** The time spent in each phase over every recorded frame (ns) */
+	private final long[] totals = new long[PHASES];
+	/** The sum of each counter over every recorded frame */
+	private final long[] counterTotals = new long[COUNTERS];
+	/** The time the last phase ended */
+	private long mark;
+	/** The time the current frame started */
+	private long frameStart;
+	/** The number of frames recorded */
+	private long frames;
+	/** The text of the overlay, one line per phase and counter plus a header */
+	private final char[][] overlay = createOverlayText();
+	/** Where CSV rows are written, or null if not exporting */
+	private Writer csv;
+	/** Scratch space for formatting numbers */
+	private final char[] digits = new char[20];
+
+	/**
+	 * Create a new profiler, initially disabled
+	 */
+	public FrameProfiler() {
+		for (int i=0;i<PHASES;i++) {
+			histograms[i] = new RollingHistogram(WINDOW);
+		}
+		for (int i=0;i<COUNTERS;i++) {
+			counterHistograms[i] = new RollingHistogram(WINDOW);
+		}
+		writeOverlayHeader();
+	}
+
+	/**
+	 * Turn recording on or off
+	 * 
+	 * @param enabled True to record timings
+	 */
+	public void setEnabled(boolean enabled) {
+		if (enabled && !this.enabled) {
+			frameStart = System.nanoTime();
+			mark = frameStart;
+		}
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Check if timings are being recorded
+	 * 
+	 * @return True if recording
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Show or hide the overlay. Showing it also turns recording on.
+	 */
+	public void toggleOverlay() {
+		overlayVisible = !overlayVisible;
+		if (overlayVisible) {
+			setEnabled(true);
+		}
+	}
+
+	/**
+	 * Mark the start of a run of phases, e.g. the start of a tick or
+	 * of drawing. Time between the last phase and this call isn't
+	 * counted against any phase.
+	 */
+	public void begin() {
+		if (enabled) {
+			mark = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Mark the end of a phase. The time since the last mark is added
+	 * to that phase for the current frame.
+	 * 
+	 * @param phase The phase that just finished
+	 */
+	public void end(int phase) {
+		if (enabled) {
+			long now = System.nanoTime();
+			current[phase] += now - mark;
+			mark = now;
+		}
+	}
+
+	/**
+	 * Add a time measured elsewhere to a phase of the current frame
+	 * 
+	 * @param phase The phase to add to
+	 * @param time The time to add (ns)
+	 */
+	public void add(int phase,long time) {
+		if (enabled) {
+			current[phase] += time;
+		}
+	}
+
+	/**
+	 * Add stats recorded away from the game loop to the current frame,
+	 * then clear them ready to record more
+	 * 
+	 * @param stats The stats to add
+	 */
+	public void add(FrameStats stats) {
+		if (enabled) {
+			for (int i=0;i<PHASES;i++) {
+				current[i] += stats.times[i];
+			}
+			for (int i=0;i<COUNTERS;i++) {
+				counters[i] += stats.counters[i];
+			}
+		}
+		stats.clear();
+	}
+
+	/**
+	 * Add to one of the counters for the current frame
+	 * 
+	 * @param counter The counter to add to
+	 * @param value The amount to add
+	 */
+	public void count(int counter,long value) {
+		if (enabled) {
+			counters[counter] += value;
+		}
+	}
+
+	/**
+	 * Set one of the counters for the current frame, for counters that
+	 * measure a level rather than an amount of work
+	 * 
+	 * @param counter The counter to set
+	 * @param value The current value
+	 */
+	public void sample(int counter,long value) {
+		if (enabled) {
+			counters[counter] = value;
+		}
+	}
+
+	/**
+	 * Finish the current frame, recording its phase totals and starting
+	 * a new frame.
+	 */
+	public void endFrame() {
+		if (!enabled) {
+			return;
+		}
+		long now = System.nanoTime();
+		current[FRAME] = now - frameStart;
+		frameStart = now;
+		mark = now;
+
+		for (int i=0;i<PHASES;i++) {
+			histograms[i].add(current[i]);
+			totals[i] += current[i];
+		}
+		for (int i=0;i<COUNTERS;i++) {
+			counterHistograms[i].add(counters[i]);
+			counterTotals[i] += counters[i];
+		}
+		if (csv != null) {
+			writeRow();
+		}
+		for (int i=0;i<PHASES;i++) {
+			current[i] = 0;
+		}
+		for (int i=0;i<COUNTERS;i++) {
+			counters[i] = 0;
+		}
+
+		frames++;
+		if (overlayVisible && frames % OVERLAY_REFRESH == 0) {
+			refreshOverlay();
+		}
+	}
+
+	/**
+	 * Get the histogram of recent frames for a phase
+	 * 
+	 * @param phase The phase
+	 * @return The histogram of times (ns)
+	 */
+	public RollingHistogram getHistogram(int phase) {
+		return histograms[phase];
+	}
+
+	/**
+	 * Get the total time spent in a phase over every frame recorded
+	 * 
+	 * @param phase The phase
+	 * @return The total time (ns)
+	 */
+	public long getTotal(int phase) {
+		return totals[phase];
+	}
+
+	/**
+	 * Get the sum of a counter over every frame recorded
+	 * 
+	 * @param counter The counter
+	 * @return The total
+	 */
+	public long getCounterTotal(int counter) {
+		return counterTotals[counter];
+	}
+
+	/**
+	 * Get the number of frames recorded
+	 * 
+	 * @return The number of frames
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Get the name of a phase
+	 * 
+	 * @param phase The phase
+	 * @return Its name
+	 */
+	public static String getName(int phase) {
+		return NAMES[phase];
+	}
+
+	/**
+	 * Get the histogram of recent frames for a counter
+	 * 
+	 * @param counter The counter
+	 * @return The histogram of values
+	 */
+	public RollingHistogram getCounterHistogram(int counter) {
+		return counterHistograms[counter];
+	}
+
+	/**
+	 * Get the name of a counter
+	 * 
+	 * @param counter The counter
+	 * @return Its name
+	 */
+	public static String getCounterName(int counter) {
+		return COUNTER_NAMES[counter];
+	}
+
+	/**
+	 * Create somewhere to copy the overlay's text to, see
+	 * {@link #copyOverlay(char[][])}
+	 * 
+	 * @return Space for one line per phase and counter plus a header
+	 */
+	public static char[][] createOverlayText() {
+		char[][] text = new char[PHASES + COUNTERS + 1][];
+		for (int i=0;i<text.length;i++) {
+			text[i] = new char[COLUMN * 5];
+		}
+		return text;
+	}
+
+	/**
+	 * Copy the overlay's text, if it's visible, so it can be drawn
+	 * later on another thread
+	 * 
+	 * @param text The lines to copy into, from {@link #createOverlayText()}
+	 * @return True if the overlay is visible and was copied
+	 */
+	public boolean copyOverlay(char[][] text) {
+		if (!overlayVisible) {
+			return false;
+		}
+		for (int i=0;i<overlay.length;i++) {
+			System.arraycopy(overlay[i],0,text[i],0,overlay[i].length);
+		}
+		return true;
+	}
+
+	/**
+	 * Draw a copy of the overlay. Times are shown in microseconds,
+	 * counters as they are.
+	 * 
+	 * @param g The graphics context on which to draw
+	 * @param text The overlay's text, from {@link #copyOverlay(char[][])}
+	 */
+	public static void drawOverlay(Graphics2D g,char[][] text) {
+		g.setColor(OVERLAY_BACKGROUND);
+		g.fillRect(OVERLAY_X,OVERLAY_Y,getOverlayWidth(),getOverlayHeight());
+		g.setColor(Color.white);
+		for (int i=0;i<text.length;i++) {
+			g.drawChars(text[i],0,text[i].length,145,15 + i * 13);
+		}
+	}
+
+	/**
+	 * Check if the overlay is being drawn
+	 * 
+	 * @return True if the overlay is showing
+	 */
+	public boolean isOverlayVisible() {
+		return overlayVisible;
+	}
+
+	/**
+	 * Get the width of the overlay's background
+	 * 
+	 * @return The width in pixels
+	 */
+	public static int getOverlayWidth() {
+		return COLUMN * 5 * 7;
+	}
+
+	/**
+	 * Get the height of the overlay's background
+	 * 
+	 * @return The height in pixels
+	 */
+	public static int getOverlayHeight() {
+		return (PHASES + COUNTERS + 1) * 13 + 4;
+	}
+
+	/**
+	 * Start writing a CSV row per frame to a file, replacing any export
+	 * already running. Recording is turned on if it wasn't already. Must
+	 * be called between frames, by the thread ending them.
+	 * 
+	 * @param file The name of the file to write
+	 * @throws IOException Indicates the file couldn't be opened
+	 */
+	public void startCsv(String file) throws IOException {
+		stopCsv();
+		csv = new BufferedWriter(new FileWriter(file), 1 << 16);
+		csv.write("frame");
+		for (int i=0;i<PHASES;i++) {
+			csv.write(',');
+			csv.write(NAMES[i]);
+			csv.write("_ns");
+		}
+		for (int i=0;i<COUNTERS;i++) {
+			csv.write(',');
+			csv.write(COUNTER_NAMES[i]);
+		}
+		csv.write('\n');
+		setEnabled(true);
+	}
+
+	/**
+	 * Stop writing CSV rows and close the file. Must be called between
+	 * frames, by the thread ending them.
+	 */
+	public void stopCsv() {
+		if (csv == null) {
+			return;
+		}
+		try {
+			csv.close();
+		} catch (IOException e) {
+			System.err.println("Failed to close profile: "+e.getMessage());
+		}
+		csv = null;
+	}
+
+	/**
+	 * Check if CSV rows are being written
+	 * 
+	 * @return True if exporting
+	 */
+	public boolean isWritingCsv() {
+		return csv != null;
+	}
+
+	/**
+	 * Write the current frame's totals as a CSV row. If writing fails
+	 * the export is stopped rather than taking the game down.
+	 */
+	private void writeRow() {
+		try {
+			writeNumber(frames);
+			for (int i=0;i<PHASES;i++) {
+				csv.write(',');
+				writeNumber(current[i]);
+			}
+			for (int i=0;i<COUNTERS;i++) {
+				csv.write(',');
+				writeNumber(counters[i]);
+			}
+			csv.write('\n');
+		} catch (IOException e) {
+			System.err.println("Failed to write profile: "+e.getMessage());
+			stopCsv();
+		}
+	}
+
+	/**
+	 * Write a number to the CSV without going through a String
+	 * 
+	 * @param value The number to write, must not be negative
+	 * @throws IOException Indicates the write failed
+	 */
+	private void writeNumber(long value) throws IOException {
+		int start = format(value,digits,digits.length);
+		csv.write(digits,start,digits.length - start);
+	}
+
+	/**
+	 * Write the column headings into the first overlay line
+	 */
+	private void writeOverlayHeader() {
+		char[] line = overlay[0];
+		fill(line);
+		String[] headings = {"us","p50","p95","p99","max"};
+		headings[0].getChars(0,headings[0].length(),line,0);
+		for (int i=1;i<headings.length;i++) {
+			headings[i].getChars(0,headings[i].length(),line,(i + 1) * COLUMN - 1 - headings[i].length());
+		}
+	}
+
+	/**
+	 * Rewrite the overlay text from the current histograms
+	 */
+	private void refreshOverlay() {
+		for (int p=0;p<PHASES;p++) {
+			writeOverlayLine(overlay[p + 1],NAMES[p],histograms[p],1000);
+		}
+		for (int c=0;c<COUNTERS;c++) {
+			writeOverlayLine(overlay[PHASES + c + 1],COUNTER_NAMES[c],counterHistograms[c],1);
+		}
+	}
+
+	/**
+	 * Write the percentiles of one histogram into a line of the overlay
+	 * 
+	 * @param line The line to write
+	 * @param name The name to show at the start of the line
+	 * @param histogram The histogram to show
+	 * @param scale The amount to divide each value by
+	 */
+	private static void writeOverlayLine(char[] line,String name,RollingHistogram histogram,long scale) {
+		fill(line);
+		name.getChars(0,name.length(),line,0);
+		format(histogram.percentile(0.50) / scale,line,COLUMN * 2 - 1);
+		format(histogram.percentile(0.95) / scale,line,COLUMN * 3 - 1);
+		format(histogram.percentile(0.99) / scale,line,COLUMN * 4 - 1);
+		format(histogram.max() / scale,line,COLUMN * 5 - 1);
+	}
+
+	/**
+	 * Blank out a line of the overlay
+	 * 
+	 * @param line The line to blank
+	 */
+	private static void fill(char[] line) {
+		for (int i=0;i<line.length;i++) {
+			line[i] = ' ';
+		}
+	}
+
+	/**
+	 * Write the digits of a number right aligned so they end just 
+	 * before a given index.
+	 * 
+	 * @param value The number to write, must not be negative
+	 * @param into The characters to write into
+	 * @param end The index after the last digit
+	 * @return The index of the first digit
+	 */
+	private static int format(long value,char[] into,int end) {
+		int i = end;
+		do {
+			into[--i] = (char) ('0' + (value % 10));
+			value /= 10;
+		} while (value > 0 && i > 0);
+		return i;
+	}
+}
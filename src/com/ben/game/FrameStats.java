@@ -0,0 +1,49 @@
+package com.ben.game;
+
+/**
+ * Phase times and counters recorded away from the game loop, to be
+ * added to a frame of the {@link FrameProfiler} later. The profiler
+ * itself is only ever touched by the game loop thread, so in threaded
+ * rendering mode the render thread records into the stats carried by
+ * the snapshot it is drawing instead. The stats come back to the
+ * simulation with the snapshot and are added to the frame being
+ * profiled then.
+ */
+public class FrameStats {
+	/** The time spent in each phase (ns) */
+	final long[] times = new long[FrameProfiler.PHASES];
+	/** The value of each counter */
+	final long[] counters = new long[FrameProfiler.COUNTERS];
+
+	/**
+	 * Add time spent in a phase
+	 * 
+	 * @param phase The phase to add to
+	 * @param time The time to add (ns)
+	 */
+	public void add(int phase,long time) {
+		times[phase] += time;
+	}
+
+	/**
+	 * Add to one of the counters
+	 * 
+	 * @param counter The counter to add to
+	 * @param value The amount to add
+	 */
+	public void count(int counter,long value) {
+		counters[counter] += value;
+	}
+
+	/**
+	 * Set everything back to zero
+	 */
+	void clear() {
+		for (int i=0;i<times.length;i++) {
+			times[i] = 0;
+		}
+		for (int i=0;i<counters.length;i++) {
+			counters[i] = 0;
+		}
+	}
+}
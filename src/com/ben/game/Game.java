@@ -7,11 +7,12 @@ import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.awt.image.BufferStrategy;
+import java.io.IOException;
 import java.util.ArrayList;
 
 import javax.swing.JFrame;
@@ -36,16 +37,106 @@ public class Game extends Canvas {
 	
 	//////////GAME TOOLS///////////////////////////////////
 	
-	/** The stragey that allows us to use accelerate page flipping */
-	private BufferStrategy strategy;
+	/** Where frames are drawn, the screen or an image in memory, null if nothing is drawn */
+	private RenderTarget renderTarget;
 	/** True if the game is currently "running", i.e. the game loop is looping */
-	private boolean gameRunning = true;
+	private volatile boolean gameRunning = true;
+	/** The default number of simulation ticks per second in fixed timestep mode */
+	public static final int DEFAULT_TICK_RATE = 100;
+	/** The most simulation ticks we'll run before rendering a frame */
+	private static final int MAX_TICKS_PER_FRAME = 5;
+	/** The most real time (ns) a single frame is allowed to feed the simulation */
+	private static final long MAX_FRAME_TIME = 250000000L;
+	/** True if the simulation runs at a fixed tick rate with interpolated rendering */
+	private boolean fixedTimestep = false;
+	/** The number of simulation ticks per second when using a fixed timestep */
+	private int tickRate = DEFAULT_TICK_RATE;
+	/** The amount of simulated time that has passed (ms) */
+	double gameTime = 0;
+	/** True if drawing happens on its own thread from published world snapshots */
+	private boolean threadedRendering = false;
+	/** Passes snapshots from the simulation to the render thread in threaded mode */
+	private WorldSnapshotBuffer snapshots;
+	/** The snapshot reused for every frame when rendering on the game loop thread */
+	private WorldSnapshot frameSnapshot = new WorldSnapshot();
+	/** Draws whole frames, used by whichever thread renders */
+	private SnapshotRenderer frameRenderer = new SnapshotRenderer();
+	/** Repaints only what changed each frame, null to redraw the whole frame */
+	private volatile DirtyRegionRenderer dirtyRenderer;
+	/** The length of a simulation step (ns) when using a fixed timestep, used to interpolate */
+	private long stepTime;
+	/** Times the phases of each frame when profiling is turned on */
+	private FrameProfiler profiler = new FrameProfiler();
+	/** The time the game started being created (ns) */
+	private long startTime = System.nanoTime();
+	/** The time the first frame of the game was shown (ns), zero until it has been */
+	private volatile long firstFrameTime;
+	/** How long the loading screen stays up if any sprites failed to load (ms) */
+	private static final long LOAD_FAILURE_DISPLAY_TIME = 3000;
 	
 	///////////ENTITIES////////////////////////////////////////
 	/** The list of all the entities that exist in our game */
 	ArrayList entities = new ArrayList();
-	/** The list of entities that need to be removed from the game this loop */
-	ArrayList removeList = new ArrayList();
+	/** The simulation state of every entity, in structure of arrays form */
+	private EntityStore store = new EntityStore();
+	/** The number of entities marked for removal this loop */
+	private int removedCount;
+	/** Shots that have left the game and can be fired again */
+	private EntityPool<ShotEntity> shotPool = new EntityPool<ShotEntity>("shots",64,new EntityPool.Factory<ShotEntity>() {
+		public ShotEntity create() {
+			return new ShotEntity(Game.this,"sprites/shot.gif",0,0,shotSpeed);
+		}
+	});
+	/** Score popups that have left the game and can be shown again */
+	private EntityPool<ScoreEntity> scorePool = new EntityPool<ScoreEntity>("scores",64,new EntityPool.Factory<ScoreEntity>() {
+		public ScoreEntity create() {
+			return new ScoreEntity(Game.this,"sprites/fifty.gif",0,0);
+		}
+	});
+	/** Aliens from earlier levels, ready to be placed in the next one */
+	private EntityPool<AlienEntity> alienPool = new EntityPool<AlienEntity>("aliens",LEVEL_ENTITIES,new EntityPool.Factory<AlienEntity>() {
+		public AlienEntity create() {
+			return new AlienEntity(Game.this,"sprites/alien.gif",0,0);
+		}
+	});
+	/** Armored aliens from earlier levels, ready to be placed in the next one */
+	private EntityPool<ArmoredAlienEntity> armoredPool = new EntityPool<ArmoredAlienEntity>("armored aliens",LEVEL_ENTITIES,new EntityPool.Factory<ArmoredAlienEntity>() {
+		public ArmoredAlienEntity create() {
+			return new ArmoredAlienEntity(Game.this,"sprites/armoredAlien.gif","sprites/alien.gif",0,0);
+		}
+	});
+	/** Rapid fire power ups from earlier levels */
+	private EntityPool<RapidFireEntity> rapidFirePool = new EntityPool<RapidFireEntity>("rapid fire",POWER_UPS,new EntityPool.Factory<RapidFireEntity>() {
+		public RapidFireEntity create() {
+			return new RapidFireEntity(Game.this,"sprites/rapidFire.gif",0,0);
+		}
+	});
+	/** Slow down power ups from earlier levels */
+	private EntityPool<SlowDownEntity> slowDownPool = new EntityPool<SlowDownEntity>("slow down",POWER_UPS,new EntityPool.Factory<SlowDownEntity>() {
+		public SlowDownEntity create() {
+			return new SlowDownEntity(Game.this,"sprites/slowDown.gif",0,0);
+		}
+	});
+	/** The number of shots and score popups made up front, enough for a busy screen */
+	private static final int SPARES = 32;
+	/** The most aliens of one kind kept between levels to start with, grown to fit larger waves */
+	private static final int LEVEL_ENTITIES = 160;
+	/** The most power ups of one kind kept between levels */
+	private static final int POWER_UPS = 8;
+	/** The block of aliens sweeping across the screen */
+	private Formation formation = new Formation();
+	/** The speed ups and timed power up effects in play this level */
+	private SpeedModifiers modifiers = new SpeedModifiers();
+	/** The sparks, shards and trails drawn over the game */
+	private ParticleSystem particles = new ParticleSystem(ParticleSystem.DEFAULT_CAPACITY);
+	/** The number of sparks thrown out when an alien is killed */
+	private static final int EXPLOSION_PARTICLES = 64;
+	/** The colour of the sparks thrown out when an alien is killed */
+	private static final int EXPLOSION_COLOR = 0xFFB040;
+	/** The colour of the trail left behind shots */
+	private static final int TRAIL_COLOR = 0x4060C0;
+	/** The strategy used to find which entities are colliding */
+	private CollisionDetector collisionDetector = new SpatialHashCollisionDetector(800,600);
 	
 	//////////SHIP SETTINGS//////////////////////////////////
 	/** The entity representing the player */
@@ -60,8 +151,8 @@ public class Game extends Canvas {
 	/** The speed at which the player's ship should move (pixels/sec) */
 	private double shipSpeed = 300; // actual current ship speed
 	private double shotSpeed = 300; // actual current shot speed
-	/** The time at which last fired a shot */
-	long lastFire = 0;
+	/** The game time at which last fired a shot */
+	double lastFire = 0;
 	/** The interval between our players shot (ms) */
 	double firingInterval = 500;
 
@@ -72,10 +163,14 @@ public class Game extends Canvas {
 	private GameStateManager gameStateManager;
 	/** Manages the score of the game*/
 	private ScoreKeeper scoreKeeper;
-	private String score = "Score: ";
-	private String killed = "Killed: ";
-	/** The number of aliens left on the screen */
-	int alienCount;
+	/** The score line of the HUD, updated in place */
+	private HudText score = new HudText("Score: ");
+	/** The killed line of the HUD, updated in place */
+	private HudText killed = new HudText("Killed: ");
+	/** The aliens line of the HUD, updated in place */
+	private HudText aliens = new HudText("Aliens: ");
+	/** The number of entities of each type in the game */
+	private EntityCounts counts = new EntityCounts();
 	/** The message to display which waiting for a key press */
 	public String message = "";
 	/** True if we're holding up game play until a key has been pressed */
@@ -88,6 +183,10 @@ public class Game extends Canvas {
 	boolean rightPressed = false;
 	/** True if we are firing */
 	boolean firePressed = false;
+	/** True if F3 has been pressed since the last frame, the overlay is shown or hidden at the end of the next */
+	private volatile boolean profileOverlayRequested = false;
+	/** True if F4 has been pressed since the last frame, the CSV export is started or stopped at the end of the next */
+	private volatile boolean profileCsvRequested = false;
 	/** True if game logic needs to be applied this loop, normally as a result of a game event */
 	private boolean logicRequiredThisLoop = false;
 
@@ -99,6 +198,47 @@ public class Game extends Canvas {
 	 * Construct our game and set it running.
 	 */
 	public Game() {
+		this(true);
+	}
+
+	/**
+	 * Construct our game, optionally without any display. A game
+	 * without a display never opens a window or creates a buffer
+	 * strategy, it can only be driven a tick at a time through
+	 * {@link #tick(double)}. This is what lets the game logic run on
+	 * machines with no screen (see {@link HeadlessGame}).
+	 * 
+	 * @param display True if the game should create its window
+	 */
+	public Game(boolean display) {
+		// start decoding the sprites straight away, they load in the
+
+		// background while the window comes up
+
+		SpriteLoader loader = SpriteStore.get().preload();
+		if (display) {
+			createDisplay();
+			showLoadingScreen(loader);
+		}
+
+		// make the shots and score popups up front so play doesn't
+
+		// have to allocate them
+
+		shotPool.prefill(SPARES);
+		scorePool.prefill(SPARES);
+
+		// create the manager and the score keeper
+		gameStateManager = new GameStateManager(this);
+		scoreKeeper = new ScoreKeeper(this);
+		gameStateManager.startGame();
+	}
+
+	/**
+	 * Create the window, canvas and buffering strategy the game
+	 * draws into.
+	 */
+	private void createDisplay() {
 		// create a frame to contain our game
 
 		JFrame container = new JFrame("Space Invaders 101");
@@ -151,13 +291,45 @@ public class Game extends Canvas {
 		// to manage our accelerated graphics
 
 		createBufferStrategy(2);
-		strategy = getBufferStrategy();
+		renderTarget = new BufferStrategyTarget(this);
+	}
 
+	/**
+	 * Show the progress of the sprite preload until it finishes. If any
+	 * sprites failed to load they are listed and left up for a moment
+	 * before the game carries on with placeholders in their place.
+	 * 
+	 * @param loader The loader decoding the sprites
+	 */
+	private void showLoadingScreen(SpriteLoader loader) {
+		while (true) {
+			boolean done = loader.isDone();
+			int finished = loader.getFinished();
+			int total = Math.max(1,loader.getTotal());
+			String[] failures = loader.getFailures();
+
+			Graphics2D g = renderTarget.getDrawGraphics();
+			g.setColor(Color.black);
+			g.fillRect(0,0,800,600);
+			g.setColor(Color.white);
+			g.drawString("Loading sprites "+finished+"/"+loader.getTotal(),340,285);
+			g.drawRect(250,295,300,12);
+			g.fillRect(252,297,(296 * finished) / total,9);
+			g.setColor(Color.red);
+			for (int i=0;i<failures.length;i++) {
+				g.drawString(failures[i],250,340 + (i * 15));
+			}
+			g.dispose();
+			renderTarget.show();
 
-		// create the manager and the score keeper
-		gameStateManager = new GameStateManager(this);
-		scoreKeeper = new ScoreKeeper(this);
-		gameStateManager.startGame();
+			if (done) {
+				if (failures.length > 0) {
+					try { Thread.sleep(LOAD_FAILURE_DISPLAY_TIME); } catch (Exception e) {}
+				}
+				return;
+			}
+			try { Thread.sleep(10); } catch (Exception e) {}
+		}
 	}
 
 	/**
@@ -169,14 +341,230 @@ public class Game extends Canvas {
 		logicRequiredThisLoop = true;
 	}
 
+	/**
+	 * Add an entity to the game. It will move, be drawn and collide
+	 * from the next loop onwards.
+	 * 
+	 * @param entity The entity to add
+	 */
+	public void addEntity(Entity entity) {
+		entity.setInGame(true);
+		entities.add(entity);
+		collisionDetector.add(entity);
+		counts.added(entity);
+	}
+
+	/**
+	 * Remove every entity from the game straight away, normally
+	 * because a new level is being set up.
+	 */
+	public void clearEntities() {
+		collisionDetector.clear();
+		for (int i=0;i<entities.size();i++) {
+			Entity entity = (Entity) entities.get(i);
+			if (entity.formationColumn >= 0) {
+				formation.remove(entity);
+			}
+			entity.setInGame(false);
+			retire(entity);
+		}
+		entities.clear();
+		counts.clear();
+		formation.clear();
+		modifiers.clear();
+		particles.clear();
+		removedCount = 0;
+	}
+
+	/**
+	 * Add an entity to the game as a member of the alien formation. The
+	 * entity should already be at its place in the formation's grid.
+	 * 
+	 * @param entity The entity to add
+	 * @param column The column of the formation it is in
+	 * @param row The row of the formation it is in
+	 */
+	public void addFormationEntity(Entity entity,int column,int row) {
+		addEntity(entity);
+		formation.add(entity,column,row);
+	}
+
 	/**
 	 * Remove an entity from the game. The entity removed will
-	 * no longer move or be drawn.
+	 * no longer move or be drawn. The entity is only marked here and
+	 * taken out at the end of the tick, so it is safe to call while the
+	 * entities are being walked and more than once for the same entity.
 	 * 
 	 * @param entity The entity that should be removed
 	 */
 	public void removeEntity(Entity entity) {
-		removeList.add(entity);
+		if (entity.markRemoved()) {
+			removedCount++;
+		}
+	}
+
+	/**
+	 * Take every entity marked for removal out of the game. The
+	 * survivors are shuffled down in place, keeping their order, so
+	 * this costs one pass over the entities however many have died.
+	 */
+	private void removeMarkedEntities() {
+		int live = 0;
+		int size = entities.size();
+		for (int i=0;i<size;i++) {
+			Entity entity = (Entity) entities.get(i);
+			if (entity.isRemoved()) {
+				if (entity.formationColumn >= 0) {
+					formation.remove(entity);
+				}
+				entity.setInGame(false);
+				collisionDetector.remove(entity);
+				counts.removed(entity);
+				retire(entity);
+			} else {
+				if (live != i) {
+					entities.set(live,entity);
+				}
+				live++;
+			}
+		}
+		// trim from the end so nothing has to be shifted
+
+		for (int i=size-1;i>=live;i--) {
+			entities.remove(i);
+		}
+		removedCount = 0;
+	}
+
+	/**
+	 * Get a shot ready to fire, reusing one that has left the game
+	 * if there is one.
+	 * 
+	 * @param x The initial x location of the shot
+	 * @param y The initial y location of the shot
+	 * @return The shot
+	 */
+	ShotEntity createShot(int x,int y) {
+		ShotEntity shot = shotPool.acquire();
+		shot.reset(x,y,shotSpeed * modifiers.getShotSpeedScale());
+		return shot;
+	}
+
+	/**
+	 * Get a score popup ready to show, reusing one that has left the
+	 * game if there is one.
+	 * 
+	 * @param sprite The handle of the sprite to show
+	 * @param x The initial x location of the popup
+	 * @param y The initial y location of the popup
+	 * @return The popup
+	 */
+	ScoreEntity createScore(int sprite,int x,int y) {
+		ScoreEntity score = scorePool.acquire();
+		score.reset(sprite,x,y);
+		return score;
+	}
+
+	/**
+	 * Get an alien for a new level, reusing one from an earlier
+	 * level if there is one.
+	 * 
+	 * @param sprite The handle of the sprite to show
+	 * @param x The initial x location of the alien
+	 * @param y The initial y location of the alien
+	 * @return The alien
+	 */
+	AlienEntity createAlien(int sprite,int x,int y) {
+		AlienEntity alien = alienPool.acquire();
+		alien.reset(sprite,x,y);
+		return alien;
+	}
+
+	/**
+	 * Get an armored alien for a new level, reusing one from an
+	 * earlier level if there is one.
+	 * 
+	 * @param armorSprite The handle of the sprite shown while armored
+	 * @param normalSprite The handle of the sprite shown once the armor is broken
+	 * @param x The initial x location of the alien
+	 * @param y The initial y location of the alien
+	 * @return The alien
+	 */
+	ArmoredAlienEntity createArmoredAlien(int armorSprite,int normalSprite,int x,int y) {
+		ArmoredAlienEntity alien = armoredPool.acquire();
+		alien.reset(armorSprite,normalSprite,x,y);
+		return alien;
+	}
+
+	/**
+	 * Get a rapid fire power up for a new level
+	 * 
+	 * @param sprite The handle of the sprite to show
+	 * @param x The initial x location
+	 * @param y The initial y location
+	 * @return The power up
+	 */
+	RapidFireEntity createRapidFire(int sprite,int x,int y) {
+		RapidFireEntity powerUp = rapidFirePool.acquire();
+		powerUp.reset(sprite,x,y);
+		return powerUp;
+	}
+
+	/**
+	 * Get a slow down power up for a new level
+	 * 
+	 * @param sprite The handle of the sprite to show
+	 * @param x The initial x location
+	 * @param y The initial y location
+	 * @return The power up
+	 */
+	SlowDownEntity createSlowDown(int sprite,int x,int y) {
+		SlowDownEntity powerUp = slowDownPool.acquire();
+		powerUp.reset(sprite,x,y);
+		return powerUp;
+	}
+
+	/**
+	 * Make sure the pools can keep every alien and power up of a wave
+	 * once it is cleared away, so playing it again reuses them all
+	 * rather than making new ones.
+	 * 
+	 * @param aliens The number of plain aliens in the wave
+	 * @param armored The number of armored aliens in the wave
+	 * @param rapidFire The number of rapid fire power ups in the wave
+	 * @param slowDown The number of slow down power ups in the wave
+	 */
+	void reserveWave(int aliens,int armored,int rapidFire,int slowDown) {
+		alienPool.reserve(aliens);
+		armoredPool.reserve(armored);
+		rapidFirePool.reserve(rapidFire);
+		slowDownPool.reserve(slowDown);
+		entities.ensureCapacity(aliens + armored + rapidFire + slowDown + SPARES);
+	}
+
+	/**
+	 * Deal with an entity that has left the game. Pooled entities go
+	 * back to their pool to be reused, anything else gives its slot in
+	 * the entity store back.
+	 * 
+	 * @param entity The entity that has been removed
+	 */
+	private void retire(Entity entity) {
+		if (entity.pool != null) {
+			entity.pool.release(entity);
+		} else {
+			entity.release();
+		}
+	}
+
+	/**
+	 * Describe how each of the entity pools has been used
+	 * 
+	 * @return One line per pool
+	 */
+	public String getPoolStats() {
+		return shotPool.getStats()+"\n"+scorePool.getStats()+"\n"+alienPool.getStats()+"\n"
+			+armoredPool.getStats()+"\n"+rapidFirePool.getStats()+"\n"+slowDownPool.getStats();
 	}
 
 	/**
@@ -189,6 +577,19 @@ public class Game extends Canvas {
 		waitingForKeyPress = true;
 	}
 
+	/**
+	 * Leave the dialogue the game is waiting on and resume play. If 
+	 * the player had died the current level is started again.
+	 */
+	public void continueFromDialogue() {
+		waitingForKeyPress = false; //switch out of dialogue
+		// are we in game over state? need to use same level again if so
+		if (gameOver) {
+			gameStateManager.SetStateNumber(gameStateManager.getStateNumber());
+			gameOver = false;
+		}
+	}
+
 	/**
 	 * Notification that the player has won since all the aliens
 	 * are dead.
@@ -206,20 +607,20 @@ public class Game extends Canvas {
 		// add alien to current score
 		scoreKeeper.Score(e);
 		// update score message
-		score = "Score: " + scoreKeeper.getScore();
-		killed = "Killed: " + scoreKeeper.getTotalKilled();
+		score.setValue(scoreKeeper.getScore());
+		killed.setValue(scoreKeeper.getTotalKilled());
+
+		// blow it up
+
+		Sprite sprite = e.getSprite();
+		particles.explode(e.getExactX() + (sprite.getWidth() / 2.0),e.getExactY() + (sprite.getHeight() / 2.0),
+				EXPLOSION_PARTICLES,EXPLOSION_COLOR);
 
 		// if there are still some aliens left then they all need to get faster, so
 		
-		// speed up all the existing aliens
+		// speed up the formation by 2%
 
-		for (int i=0;i<entities.size();i++) {
-			Entity entity = (Entity) entities.get(i);
-			if (entity instanceof AlienEntity || entity instanceof PowerUpEntity) {
-				// speed up by 2%
-				entity.setHorizontalMovement(entity.getHorizontalMovement() * 1.02);
-			}
-		}
+		modifiers.alienKilled();
 	}
 
 	/**
@@ -230,20 +631,15 @@ public class Game extends Canvas {
 		//check for rapid fire 
 		if (e instanceof RapidFireEntity) {
 			scoreKeeper.Score(e); // add to score and create score entity
-			shotSpeed *= 1.2; // increase speed of shot by 20%
-			firingInterval *= .8; // decrease interval length by 20%
+			// shots 20% faster and 20% more often for a while
+			modifiers.start(SpeedModifiers.RAPID_FIRE,gameTime);
 		}
 		// check for slowdown
 		else if (e instanceof SlowDownEntity){
 			scoreKeeper.Score(e); // add to score and create score entity
-			for (int i=0;i<entities.size();i++) {
-				Entity entity = (Entity) entities.get(i);
-				if (entity instanceof AlienEntity || entity instanceof PowerUpEntity) {
-					// slow down by 50%
+			// slow down the formation by 50% for a while
 
-					entity.setHorizontalMovement(entity.getHorizontalMovement() * 0.50);
-				}
-			}
+			modifiers.start(SpeedModifiers.SLOW_DOWN,gameTime);
 		}
 	}
 
@@ -255,18 +651,16 @@ public class Game extends Canvas {
 	public void tryToFire() {
 		// check that we have waiting long enough to fire
 
-		if (System.currentTimeMillis() - lastFire < firingInterval) {
+		if (gameTime - lastFire < firingInterval * modifiers.getFiringIntervalScale()) {
 			return;
 		}
 
 		// if we waited long enough, create the shot entity, and record the time.
 
-		lastFire = System.currentTimeMillis();
-		ShotEntity shot = new ShotEntity(this,"sprites/shot.gif",ship.getX()+10,ship.getY()-30, shotSpeed);
-		entities.add(shot);
+		lastFire = gameTime;
+		addEntity(createShot(ship.getX()+10,ship.getY()-30));
 		if (hasCoShip){
-			ShotEntity coShot = new ShotEntity(this,"sprites/shot.gif",coShip.getX()+10,coShip.getY()-30, shotSpeed);
-			entities.add(coShot);
+			addEntity(createShot(coShip.getX()+10,coShip.getY()-30));
 		}
 	}
 
@@ -280,9 +674,27 @@ public class Game extends Canvas {
 	 * - Updating game events
 	 * - Checking Input
 	 * <p>
+	 * Depending on how the game was configured this either runs the
+	 * simulation at a fixed tick rate (see {@link #setFixedTimestep(boolean)})
+	 * or advances it by however long the last frame took.
 	 */
 	public void gameLoop() {
-		long lastLoopTime = System.currentTimeMillis();
+		if (threadedRendering) {
+			startRenderThread();
+		}
+		if (fixedTimestep) {
+			fixedStepLoop();
+		} else {
+			variableStepLoop();
+		}
+	}
+
+	/**
+	 * The classic loop, one simulation update per rendered frame with
+	 * the update length taken from the time the last frame took.
+	 */
+	private void variableStepLoop() {
+		long lastLoopTime = System.nanoTime();
 
 		// keep looping round til the game ends
 
@@ -293,153 +705,354 @@ public class Game extends Canvas {
 
 			// move this loop
 
-			long delta = System.currentTimeMillis() - lastLoopTime;
-			lastLoopTime = System.currentTimeMillis();
+			long now = System.nanoTime();
+			double delta = (now - lastLoopTime) / 1000000.0;
+			lastLoopTime = now;
 
-			// Get hold of a graphics context for the accelerated 
+			savePositions();
+			tick(delta);
+			present(1);
 
-			// surface and blank it out
+			// finally pause for a bit. Note: this should run us at about
 
-			Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
-			g.setColor(Color.black);
-			g.fillRect(0,0,800,600);
+			// 100 fps but on windows this might vary each loop due to
 
+			// a bad implementation of timer
 
-			// Make sure the game only changes status when we are not on dialogue
-			if (!waitingForKeyPress) {
-				for (int i=0;i<entities.size();i++) {
-					Entity entity = (Entity) entities.get(i);
+			try { Thread.sleep(10); } catch (Exception e) {}
+		}
+	}
 
-					entity.move(delta);
-				}
+	/**
+	 * A fixed timestep loop. Real time is accumulated and consumed in
+	 * constant sized simulation ticks, and the renderer draws entities
+	 * interpolated between the last two ticks with whatever is left over.
+	 * To stop a slow machine falling further and further behind (the 
+	 * "spiral of death") both the time accepted per frame and the number
+	 * of ticks run per frame are capped.
+	 */
+	private void fixedStepLoop() {
+		long step = 1000000000L / tickRate;
+		stepTime = step;
+		double stepMillis = step / 1000000.0;
+		long accumulator = 0;
+		long lastLoopTime = System.nanoTime();
 
-				boolean alienOnScreen = false;
-				for (int i=0;i<entities.size();i++) {
-					Entity entity = (Entity) entities.get(i);
-					if (entity instanceof AlienEntity) {
-						alienOnScreen = true;
-					}
-				}
-				if (!alienOnScreen) {
-					notifyWin();
-				}
-				// resolve the movement of the ship. First assume the ship 
+		while (gameRunning) {
+			long now = System.nanoTime();
+			long frameTime = now - lastLoopTime;
+			lastLoopTime = now;
 
-				// isn't moving. If either cursor key is pressed then
+			// a long stall (debugger, window drag) shouldn't be simulated in full
 
-				// update the movement appropraitely	
-				ship.setHorizontalMovement(0);
+			if (frameTime > MAX_FRAME_TIME) {
+				frameTime = MAX_FRAME_TIME;
+			}
+			accumulator += frameTime;
+
+			int ticks = 0;
+			while (accumulator >= step && ticks < MAX_TICKS_PER_FRAME) {
+				savePositions();
+				tick(stepMillis);
+				accumulator -= step;
+				ticks++;
+			}
 
-				if ((leftPressed) && (!rightPressed)) {
-					ship.setHorizontalMovement(-shipSpeed);
-				} else if ((rightPressed) && (!leftPressed)) {
-					ship.setHorizontalMovement(shipSpeed);
-				}
+			// if we still couldn't catch up drop the backlog rather than
 
-				if (hasCoShip) {
-					coShip.setHorizontalMovement(0);
+			// carrying it into the next frame
 
-					if ((leftPressed) && (!rightPressed)) {
-						coShip.setHorizontalMovement(-shipSpeed);
-					} else if ((rightPressed) && (!leftPressed)) {
-						coShip.setHorizontalMovement(shipSpeed);
-					}
-				}
+			if (accumulator >= step) {
+				accumulator %= step;
+			}
 
-				// if we're pressing fire, attempt to fire
+			present((double) accumulator / step);
 
-				if (firePressed) {
-					tryToFire();
-				}
+			// sleep off whatever is left until the next tick is due
 
+			long wait = (step - accumulator - (System.nanoTime() - now)) / 1000000;
+			if (wait > 0) {
+				try { Thread.sleep(wait); } catch (Exception e) {}
+			} else {
+				Thread.yield();
 			}
-			g.setColor(Color.white);
-			g.drawString(score,15,15);
-			g.drawString(killed,15, 30);
+		}
+	}
 
+	/**
+	 * Record every entity's current location so the renderer can 
+	 * interpolate from it during the next tick.
+	 */
+	private void savePositions() {
+		store.savePositions();
+	}
 
-			// cycle round drawing all the entities we have in the game
+	/**
+	 * Advance the game simulation by a single step. This moves the
+	 * entities, applies player input, resolves collisions and runs any
+	 * pending game logic, but does no drawing.
+	 * 
+	 * @param delta The length of the step in milliseconds
+	 */
+	public void tick(double delta) {
+		gameTime += delta;
+		profiler.begin();
 
-			for (int i=0;i<entities.size();i++) {
-				Entity entity = (Entity) entities.get(i);
+		// Make sure the game only changes status when we are not on dialogue
+		if (!waitingForKeyPress) {
+			modifiers.update(gameTime);
+			formation.setSpeedScale(modifiers.getFormationScale());
+			formation.step(delta);
+			store.move(this,delta);
+			profiler.end(FrameProfiler.MOVE);
 
-				entity.draw(g);
+			// once the last alien has gone the level is won
+
+			if (counts.getAliens() == 0) {
+				notifyWin();
 			}
+			profiler.end(FrameProfiler.ALIEN_SCAN);
+			// resolve the movement of the ship. First assume the ship 
 
-			// brute force collisions, compare every entity against
+			// isn't moving. If either cursor key is pressed then
 
-			// every other entity. If any of them collide notify 
+			// update the movement appropraitely	
+			ship.setHorizontalMovement(0);
 
-			// both entities that the collision has occured
+			if ((leftPressed) && (!rightPressed)) {
+				ship.setHorizontalMovement(-shipSpeed);
+			} else if ((rightPressed) && (!leftPressed)) {
+				ship.setHorizontalMovement(shipSpeed);
+			}
 
-			for (int p=0;p<entities.size();p++) {
-				for (int s=p+1;s<entities.size();s++) {
-					Entity me = (Entity) entities.get(p);
-					Entity him = (Entity) entities.get(s);
+			if (hasCoShip) {
+				coShip.setHorizontalMovement(0);
 
-					if (me.collidesWith(him)) {
-						me.collidedWith(him);
-						him.collidedWith(me);
-					}
+				if ((leftPressed) && (!rightPressed)) {
+					coShip.setHorizontalMovement(-shipSpeed);
+				} else if ((rightPressed) && (!leftPressed)) {
+					coShip.setHorizontalMovement(shipSpeed);
 				}
 			}
 
-			// remove any entity that has been marked for clear up
+			// if we're pressing fire, attempt to fire
 
-			entities.removeAll(removeList);
-			removeList.clear();
+			if (firePressed) {
+				tryToFire();
+			}
 
-			// if a game event has indicated that game logic should
+		} else {
+			// while in dialogue forget any movement keys still held
 
-			// be resolved, cycle round every entity requesting that
+			leftPressed = false;
+			rightPressed = false;
+			firePressed = false;
+		}
+		profiler.begin();
 
-			// their personal logic should be considered.
+		// find the entities that collide, both entities in each pair
 
+		// are notified that the collision has occured
 
-			if (logicRequiredThisLoop) {
-				for (int i=0;i<entities.size();i++) {
-					Entity entity = (Entity) entities.get(i);
-					entity.doLogic();
-				}
+		collisionDetector.findCollisions(entities);
+		profiler.count(FrameProfiler.PAIRS_TESTED,collisionDetector.getPairsTested());
+		profiler.end(FrameProfiler.COLLIDE);
 
-				logicRequiredThisLoop = false;
-			}
+		// remove any entity that has been marked for clear up
 
-			// if we're waiting for an "any key" press then draw the 
-			// current message 
+		if (removedCount > 0) {
+			removeMarkedEntities();
+		}
+		if (aliens.getValue() != counts.getAliens()) {
+			aliens.setValue(counts.getAliens());
+		}
+		profiler.sample(FrameProfiler.ENTITIES,counts.getTotal());
+		profiler.end(FrameProfiler.REMOVE);
 
-			if (waitingForKeyPress) {
-				
-				leftPressed = false;
-				rightPressed = false;
-				firePressed = false;
-				g.setColor(Color.white);
-				g.drawString(message,(800-g.getFontMetrics().stringWidth(message))/2, 400);
-				g.drawString("Press the up arrow to continue",(800-g.getFontMetrics().stringWidth("Press the up arrow to contiune"))/2,450);
+		// if a game event has indicated that game logic should
+
+		// be resolved, cycle round every entity requesting that
+
+		// their personal logic should be considered.
+
+
+		if (logicRequiredThisLoop) {
+			for (int i=0;i<entities.size();i++) {
+				Entity entity = (Entity) entities.get(i);
+				entity.doLogic();
 			}
 
+			logicRequiredThisLoop = false;
+		}
 
+		// if the formation dropped onto the player this tick then the
 
+		// player dies
 
-			// finally, we've completed drawing so clear up the graphics
+		if (formation.hasLanded()) {
+			notifyDeath();
+		}
+		profiler.end(FrameProfiler.LOGIC);
+
+		// move the particles last so those spawned this tick are ready
+
+		// to be drawn
+
+		particles.trailShots(store,TRAIL_COLOR);
+		particles.update(delta);
+		profiler.sample(FrameProfiler.PARTICLE_COUNT,particles.getCount());
+		profiler.end(FrameProfiler.PARTICLES);
+	}
+
+	/**
+	 * Make the result of the latest tick visible. Either draws it
+	 * straight away or, in threaded mode, publishes a snapshot for
+	 * the render thread to pick up.
+	 * 
+	 * @param alpha How far between the last tick and the next one we are (0..1)
+	 */
+	private void present(double alpha) {
+		if (threadedRendering) {
+			snapshots.publish(this);
+		} else {
+			drawFrame(alpha);
+		}
+		profiler.endFrame();
+
+		// act on the profiling keys here, between frames, so the profiler
+
+		// is only ever touched by this thread and the export never closes
+
+		// under a row being written
+
+		if (profileOverlayRequested) {
+			profileOverlayRequested = false;
+			profiler.toggleOverlay();
+		}
+		if (profileCsvRequested) {
+			profileCsvRequested = false;
+			toggleProfileCsv();
+		}
+	}
+
+	/**
+	 * Draw the current state of the game to the render target on this
+	 * thread, exactly as the game loop does each frame
+	 * 
+	 * @param alpha How far between the last tick and the next one we are (0..1)
+	 */
+	public void drawFrame(double alpha) {
+		if (renderTarget == null) {
+			return;
+		}
+		long start = System.nanoTime();
+		frameSnapshot.capture(this);
+		profiler.add(FrameProfiler.DRAW,System.nanoTime() - start);
+		renderFrame(frameSnapshot,alpha);
+		profiler.add(frameSnapshot.renderStats);
+	}
 
-			// and flip the buffer over
+	/**
+	 * Draw a snapshot of the game to the screen and flip the buffers.
+	 * 
+	 * In threaded mode this runs on the render thread, so timings and
+	 * counts go into the snapshot's own stats rather than the profiler.
+	 * They reach the profiler when the snapshot is handed back to the
+	 * simulation, see {@link WorldSnapshotBuffer#publish(Game)}.
+	 * 
+	 * @param snapshot The snapshot to draw
+	 * @param alpha How far between the last tick and the next one we are (0..1)
+	 */
+	private void renderFrame(WorldSnapshot snapshot,double alpha) {
+		// Get hold of a graphics context for the accelerated 
+
+		// surface and draw into it
+
+		long start = System.nanoTime();
+		FrameStats stats = snapshot.renderStats;
+		SpriteStore sprites = SpriteStore.get();
+		RenderTarget target = renderTarget;
+		GraphicsConfiguration gc = target.getGraphicsConfiguration();
+		DirtyRegionRenderer dirty = dirtyRenderer;
+		boolean changed = true;
+		do {
+			// make sure any sprites held in video memory are still
+
+			// there before drawing with them
+
+			sprites.validate(gc);
+			Graphics2D g = target.getDrawGraphics();
+			if (dirty == null) {
+				frameRenderer.draw(g,snapshot,alpha);
+				frameRenderer.drawOverlay(g,snapshot);
+			} else {
+				changed = dirty.render(g,snapshot,alpha);
+				stats.count(FrameProfiler.TILES_REPAINTED,dirty.getTilesRepainted());
+			}
+
+			// finally, we've completed drawing so clear up the graphics
 
 			g.dispose();
-			strategy.show();
 
+			// if the sprites were lost part way through draw it all again
 
+			if (!sprites.contentsLost()) {
+				break;
+			}
+			if (dirty != null) {
+				dirty.invalidate();
+			}
+		} while (true);
+		sprites.countBlits(stats,gc);
 
-			// finally pause for a bit. Note: this should run us at about
+		// and flip the buffer over, unless nothing has changed
 
-			// 100 fps but on windows this might vary each loop due to
+		long drawn = System.nanoTime();
+		stats.add(FrameProfiler.DRAW,drawn - start);
+		if (!changed) {
+			return;
+		}
+		target.show();
+		if (firstFrameTime == 0) {
+			firstFrameTime = System.nanoTime();
+		}
+		stats.add(FrameProfiler.PRESENT,System.nanoTime() - drawn);
 
-			// a bad implementation of timer
+		// repainting only what changed relies on the back buffer still
 
-			try { Thread.sleep(10); } catch (Exception e) {}
+		// holding an earlier frame
+
+		if (dirty != null && (target.contentsLost() || !target.isBackBufferPreserved())) {
+			dirty.invalidate();
 		}
 	}
 
+	/**
+	 * Start the thread that draws published snapshots in threaded
+	 * rendering mode. The thread draws as fast as the display will take
+	 * frames, interpolating between ticks if a fixed timestep is used.
+	 */
+	private void startRenderThread() {
+		snapshots = new WorldSnapshotBuffer();
+		Thread renderer = new Thread(new Runnable() {
+			public void run() {
+				while (gameRunning) {
+					WorldSnapshot snapshot = snapshots.acquire();
+					if (snapshot != null) {
+						double alpha = 1;
+						if (fixedTimestep) {
+							alpha = Math.min(1.0, (double) (System.nanoTime() - snapshot.time) / stepTime);
+						}
+						renderFrame(snapshot,alpha);
+					}
+					try { Thread.sleep(1); } catch (Exception e) {}
+				}
+			}
+		}, "Renderer");
+		renderer.setDaemon(true);
+		renderer.start();
+	}
+
 	/**
 	 * A class to handle keyboard input from the user. The class
 	 * handles both dynamic input during game play, i.e. left/right 
@@ -469,16 +1082,19 @@ public class Game extends Canvas {
 				upPressed = true;
 			}
 
+			// profiling keys work in and out of dialogue
+			if (e.getKeyCode() == KeyEvent.VK_F3) {
+				profileOverlayRequested = true;
+			}
+			if (e.getKeyCode() == KeyEvent.VK_F4) {
+				profileCsvRequested = true;
+			}
+
 			// check it we are in dialogue and only accept the continue key
 			if (waitingForKeyPress) {
 				if (upPressed){
-					waitingForKeyPress = false; //switch out of dialogue
 					upPressed = false; //reset this because release is dumb
-					// are we in game over state? need to use same level again if so
-					if (gameOver) {
-						gameStateManager.SetStateNumber(gameStateManager.getStateNumber());
-						gameOver = false;
-					}
+					continueFromDialogue();
 				}
 				return;	
 			}
@@ -588,15 +1204,333 @@ public class Game extends Canvas {
 		firingInterval = j;
 	}
 
+	/**
+	 * Get the score line shown on the HUD
+	 * 
+	 * @return The score text
+	 */
+	public HudText getScoreText() {
+		return score;
+	}
+
+	/**
+	 * Get the killed line shown on the HUD
+	 * 
+	 * @return The killed text
+	 */
+	public HudText getKilledText() {
+		return killed;
+	}
+
+	/**
+	 * Get the score keeper tracking this game
+	 * 
+	 * @return The score keeper
+	 */
+	public ScoreKeeper getScoreKeeper() {
+		return scoreKeeper;
+	}
+
+	/**
+	 * Get the aliens line shown on the HUD
+	 * 
+	 * @return The aliens text
+	 */
+	public HudText getAliensText() {
+		return aliens;
+	}
+
+	/**
+	 * Get the number of entities of each type in the game
+	 * 
+	 * @return The live entity counts
+	 */
+	public EntityCounts getEntityCounts() {
+		return counts;
+	}
+
+	/**
+	 * Get the block of aliens sweeping across the screen
+	 * 
+	 * @return The formation
+	 */
+	public Formation getFormation() {
+		return formation;
+	}
+
+	/**
+	 * Get how long it took from starting to create the game to showing
+	 * its first frame, including loading the sprites and setting up
+	 * the first level
+	 * 
+	 * @return The time in milliseconds, or -1 if no frame has been shown yet
+	 */
+	public double getTimeToFirstFrame() {
+		long first = firstFrameTime;
+		if (first == 0) {
+			return -1;
+		}
+		return (first - startTime) / 1000000.0;
+	}
+
+	/**
+	 * Get the sparks, shards and trails drawn over the game
+	 * 
+	 * @return The particle system
+	 */
+	public ParticleSystem getParticles() {
+		return particles;
+	}
+
+	/**
+	 * Get the speed ups and timed effects in play this level
+	 * 
+	 * @return The modifiers
+	 */
+	public SpeedModifiers getSpeedModifiers() {
+		return modifiers;
+	}
+
+	/**
+	 * Get the store holding the simulation state of every entity
+	 * 
+	 * @return The entity store
+	 */
+	public EntityStore getEntityStore() {
+		return store;
+	}
+
+	/**
+	 * Get the profiler timing the phases of each frame
+	 * 
+	 * @return The frame profiler
+	 */
+	public FrameProfiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Start writing per frame profile rows to a new CSV file, or stop
+	 * if we already are. Must be called from the game loop, between
+	 * frames.
+	 */
+	private void toggleProfileCsv() {
+		if (profiler.isWritingCsv()) {
+			profiler.stopCsv();
+			return;
+		}
+		String file = "profile-"+System.currentTimeMillis()+".csv";
+		try {
+			profiler.startCsv(file);
+			System.out.println("Writing profile to "+file);
+		} catch (IOException e) {
+			System.err.println("Can't write profile to "+file+": "+e.getMessage());
+		}
+	}
+
+	/**
+	 * Get the manager tracking which level this game is on
+	 * 
+	 * @return The game state manager
+	 */
+	public GameStateManager getGameStateManager() {
+		return gameStateManager;
+	}
+
+	/**
+	 * Check if the game is holding play until the player continues
+	 * 
+	 * @return True if we're waiting for a key press
+	 */
+	public boolean isWaitingForKeyPress() {
+		return waitingForKeyPress;
+	}
+
+	/**
+	 * Change the strategy used to find colliding entities. The entities
+	 * already in the game are handed over to the new detector.
+	 * 
+	 * @param detector The collision detector to use
+	 */
+	public void setCollisionDetector(CollisionDetector detector) {
+		collisionDetector.clear();
+		collisionDetector = detector;
+		for (int i=0;i<entities.size();i++) {
+			detector.add((Entity) entities.get(i));
+		}
+	}
+
+	/**
+	 * Create one of the built in collision detectors by name
+	 * 
+	 * @param name One of "grid", "sweep" or "brute"
+	 * @return The new collision detector
+	 */
+	public static CollisionDetector createCollisionDetector(String name) {
+		if ("grid".equals(name)) {
+			return new SpatialHashCollisionDetector(800,600);
+		} else if ("sweep".equals(name)) {
+			return new SweepAndPruneCollisionDetector();
+		} else if ("brute".equals(name)) {
+			return new BruteForceCollisionDetector();
+		}
+		throw new IllegalArgumentException("Unknown collision detector: "+name);
+	}
+
+	/**
+	 * Choose between redrawing the whole frame every time and only
+	 * repainting the parts of the screen that have changed. When
+	 * nothing has changed, e.g. while a dialogue is showing, the frame
+	 * isn't presented at all. See {@link DirtyRegionRenderer}.
+	 * 
+	 * @param dirtyRegions True to repaint only what changed
+	 */
+	public void setDirtyRegionRendering(boolean dirtyRegions) {
+		dirtyRenderer = dirtyRegions ? new DirtyRegionRenderer() : null;
+	}
+
+	/**
+	 * Change where frames are drawn, e.g. to an {@link ImageRenderTarget}
+	 * so a game without a display can still be rendered. Must be set
+	 * before the game loop is started.
+	 * 
+	 * @param renderTarget The target to draw frames to, null to draw nothing
+	 */
+	public void setRenderTarget(RenderTarget renderTarget) {
+		this.renderTarget = renderTarget;
+		if (dirtyRenderer != null) {
+			dirtyRenderer.invalidate();
+		}
+	}
+
+	/**
+	 * Get where frames are drawn
+	 * 
+	 * @return The render target, or null if nothing is drawn
+	 */
+	public RenderTarget getRenderTarget() {
+		return renderTarget;
+	}
+
+	/**
+	 * Get the dirty region renderer in use
+	 * 
+	 * @return The renderer, or null if whole frames are being drawn
+	 */
+	public DirtyRegionRenderer getDirtyRegionRenderer() {
+		return dirtyRenderer;
+	}
+
+	/**
+	 * Choose whether drawing happens on the game loop thread or on a
+	 * separate render thread fed with snapshots of the world. Must be
+	 * set before the game loop is started.
+	 * 
+	 * @param threadedRendering True to render on a separate thread
+	 */
+	public void setThreadedRendering(boolean threadedRendering) {
+		this.threadedRendering = threadedRendering;
+	}
+
+	/**
+	 * Choose between a fixed simulation step with interpolated rendering
+	 * and the variable step used by default. Must be set before the
+	 * game loop is started.
+	 * 
+	 * @param fixedTimestep True to run the simulation at a fixed tick rate
+	 */
+	public void setFixedTimestep(boolean fixedTimestep) {
+		this.fixedTimestep = fixedTimestep;
+	}
+
+	/**
+	 * Set the number of simulation ticks per second used in fixed
+	 * timestep mode.
+	 * 
+	 * @param tickRate The number of ticks per second
+	 */
+	public void setTickRate(int tickRate) {
+		if (tickRate <= 0) {
+			throw new IllegalArgumentException("Tick rate must be positive: "+tickRate);
+		}
+		this.tickRate = tickRate;
+	}
+
+	/**
+	 * Apply the settings given as system properties:
+	 * <p>
+	 * - invaders.fixedTimestep - run the simulation at a fixed tick rate
+	 * - invaders.tickRate - the number of ticks per second for a fixed timestep
+	 * - invaders.threadedRendering - draw on a separate thread
+	 * - invaders.dirtyRegions - repaint only the parts of the screen that changed
+	 * - invaders.volatileSprites - draw sprites from VolatileImages, restoring them when lost
+	 * - invaders.collision - the collision detector, one of grid (default), sweep or brute
+	 * - invaders.profile - start with the profiler overlay showing
+	 * - invaders.profileCsv - write a profile row per frame to this file
+	 * - invaders.rapidFireDuration - how long rapid fire lasts (ms), 0 for the rest of the level
+	 * - invaders.slowDownDuration - how long slow down lasts (ms), 0 for the rest of the level
+	 * - invaders.particles - the most particles alive at once, 0 for none
+	 * - invaders.spriteBudget - the memory sprites may take before unused ones are evicted (KB)
+	 * <p>
+	 * Must be called before the game loop is started.
+	 */
+	public void configure() {
+		setFixedTimestep(Boolean.getBoolean("invaders.fixedTimestep"));
+		setTickRate(Integer.getInteger("invaders.tickRate", DEFAULT_TICK_RATE).intValue());
+		setThreadedRendering(Boolean.getBoolean("invaders.threadedRendering"));
+		setDirtyRegionRendering(Boolean.getBoolean("invaders.dirtyRegions"));
+		if (Boolean.getBoolean("invaders.volatileSprites") && renderTarget != null
+				&& renderTarget.getGraphicsConfiguration() != null) {
+			SpriteStore.get().useVolatileImages(renderTarget.getGraphicsConfiguration());
+		}
+		String collision = System.getProperty("invaders.collision");
+		if (collision != null) {
+			setCollisionDetector(createCollisionDetector(collision));
+		}
+		if (Boolean.getBoolean("invaders.profile")) {
+			profiler.toggleOverlay();
+		}
+		String rapidFire = System.getProperty("invaders.rapidFireDuration");
+		if (rapidFire != null) {
+			modifiers.setDuration(SpeedModifiers.RAPID_FIRE,Double.parseDouble(rapidFire));
+		}
+		Integer particleBudget = Integer.getInteger("invaders.particles");
+		if (particleBudget != null) {
+			particles = new ParticleSystem(particleBudget.intValue());
+		}
+		Integer spriteBudget = Integer.getInteger("invaders.spriteBudget");
+		if (spriteBudget != null) {
+			SpriteStore.get().setBudget(spriteBudget.intValue() * 1024L);
+		}
+		String slowDown = System.getProperty("invaders.slowDownDuration");
+		if (slowDown != null) {
+			modifiers.setDuration(SpeedModifiers.SLOW_DOWN,Double.parseDouble(slowDown));
+		}
+		String csv = System.getProperty("invaders.profileCsv");
+		if (csv != null) {
+			try {
+				profiler.startCsv(csv);
+			} catch (IOException e) {
+				System.err.println("Can't write profile to "+csv+": "+e.getMessage());
+			}
+		}
+	}
+
 	/**
 	 * The entry point into the game. We'll simply create an
 	 * instance of class which will start the display and game
 	 * loop.
 	 * 
+	 * The simulation can be switched to a fixed timestep with
+	 * -Dinvaders.fixedTimestep=true, and its rate set with 
+	 * -Dinvaders.tickRate=&lt;ticks per second&gt;. See {@link #configure()}
+	 * for the other settings.
+	 * 
 	 * @param argv The arguments that are passed into our game
 	 */
 	public static void main(String argv[]) {
 		Game g =new Game();
+		g.configure();
 
 		// Start the main game loop, note: this method will not
 
@@ -15,10 +15,22 @@ public class GameStateManager {
 	private int stateNumber; 
 	private int numberStates;
 
+	/** The levels in the order they are played, state n is levels[n - 1] */
+	private Level[] levels;
+
+	/** The handles of the sprites held for the current state */
+	private int[] stateSprites = new int[0];
+
 	public GameStateManager(Game game) {
 		stateNumber = 1;
-		numberStates = 6;
 		this.game = game;
+
+		// the levels are compiled once and reused every time they
+
+		// are played, one state per level plus game over
+
+		levels = LevelStore.get().getLevels();
+		numberStates = levels.length + 1;
 	}
 	public void NextState(){
 		stateNumber++;
@@ -31,25 +43,16 @@ public class GameStateManager {
 	}
 
 	public void CreateState() {
-		game.entities.clear();
+		game.clearEntities();
 		/* 
 		 * check if the stateNumber is
 		 * a valid state  by comparing it to
 		 * the number of states (not including the game over state)
 		 */
-		if (stateNumber <= numberStates - 1){
-			switch (stateNumber) {
-			case 1: SetLevelOneState();
-			break;
-			case 2: SetLevelTwoState();
-			break;
-			case 3: SetLevelThreeState();
-			break;
-			case 4: SetLevelFourState();
-			break;
-			case 5: GameCompleteState();
-			break;
-			}
+		if (stateNumber >= 1 && stateNumber <= numberStates - 1){
+			Level level = levels[stateNumber - 1];
+			holdSprites(level.getSpriteRefs());
+			level.spawn(game);
 		} else {
 			/*if the state is not valid, restart the game*/
 			System.out.println("State not valid");
@@ -58,6 +61,19 @@ public class GameStateManager {
 
 	}
 
+	/**
+	 * Hold the sprites a state uses in the sprite store, letting go of
+	 * those the last state used. The new set is taken before the old
+	 * one goes so sprites both use are never evicted in between.
+	 * 
+	 * @param refs The references to the sprites the state uses
+	 */
+	private void holdSprites(String[] refs) {
+		int[] previous = stateSprites;
+		stateSprites = SpriteStore.get().acquire(refs);
+		SpriteStore.get().release(previous);
+	}
+
 	/**
 	 * Start a fresh game, this should clear out any old data and
 	 * create a new set.
@@ -76,173 +92,29 @@ public class GameStateManager {
 	}
 
 	public void GameOverState() {
-		game.entities.clear();
+		game.clearEntities();
 		game.message = "Noooo!!!!! We are on our way to rescue you!... There! Now GO DEFFEND EARTH!";
 		game.hasCoShip = false;
 	}	
 
-	///////////////////////Levels/////////////////////////
-
-
-
-	/**                  Level 1
-	 * 
-	 * Initialise the starting state of the entities (ship and aliens). Each
-	 * entitiy will be added to the overall list of entities in the game.
-	 */
-	public void SetLevelOneState() {
-
-		game.message = "Defend the earth from these invaders quick!";
-		game.ship = new ShipEntity(game,"sprites/ship.gif",370,550, false);
-		game.entities.add(game.ship);
-
-		// make sure the ship has all default settings
-		game.setShotSpeed(game.DEFAULT_SHOT_SPEED, game.DEFAULT_SHOT_INTERVAL);
-		game.setShipSpeed(game.DEFAULT_SHIP_SPEED);
-		int row;
-		int x;
-		for (row=0;row<5;row++) {
-			for (x=0;x<12;x++) {
-				Entity alien = new AlienEntity(game,"sprites/alien.gif",100+(x*50),(50)+row*30);
-				game.entities.add(alien);
-			}
-		}
-	}
-
-	/**                  Level 2
-	 * 
-	 *  Stronger aliens in the first 3 rows and normal in the back 3
-	 *  Ship upgrades its fire rate
-	 *  
-	 */
-	public void SetLevelTwoState() {
-		game.message = "Good Work! We have upgraded your ship to a faster blaster. They brought reinforcements with armor!";
-		game.message += " Good Luck!";
-		game.ship = new ShipEntity(game,"sprites/shipBlue.gif",370,550, false);
-		game.entities.add(game.ship);
-
-		game.setShotSpeed(500, 200);
-
-		game.alienCount = 0;
-		int row;
-		int x;
-		int chain = 0;
-		for (row=chain;row<chain+3;row++) {
-			for (x=0;x<12;x++) {
-				if (x == 2 && row == 2 || x == 10 && row == 1 ){
-					Entity rapid = new RapidFireEntity(game,"sprites/rapidFire.gif",100+(x*50),(50)+row*30);
-					game.entities.add(rapid);
-				}else{
-					Entity alien = new AlienEntity(game,"sprites/alien.gif",100+(x*50),(50)+row*30);
-					game.entities.add(alien);
-					game.alienCount++;
-				}
-			}
-		}
-		chain+=3;
-		for (row =chain;row<chain+5;row++) {
-			for (x=0;x<12;x++) {
-				Entity armoredAlien = new ArmoredAlienEntity(game,"sprites/armoredAlien.gif","sprites/alien.gif",100+(x*50),(50)+row*30);
-				game.entities.add(armoredAlien);
-				game.alienCount++;
-			}
-		}
-	}
-
 	/**
-	 * faster aliens and there are 2 rows of strong in front,
-	 * 3 rows of normal, then 2 more rows of strong in back
+	 * Get the number of levels played before the game starts again
 	 * 
-	 * upgrade to faster ship
+	 * @return The number of levels
 	 */
-	public void SetLevelThreeState() {
-		game.message = "Fantastic! We noticed your ship is slow so we fitted you with a faster ship. Keep it up!";
-		game.ship = new ShipEntity(game,"sprites/shipPurple.gif",370,550, false);
-		game.entities.add(game.ship);
-
-		game.setShipSpeed(1000);
-		game.setShotSpeed(500, 200);
-
-		game.alienCount = 0;
-		int row;
-		int x;
-		int rowLength = 15;
-		int chain = 0;
-		for (row =chain;row<chain+2;row++) {
-			for (x=0;x<rowLength;x++) {
-
-				Entity armoredAlien = new ArmoredAlienEntity(game,"sprites/armoredAlien.gif","sprites/alien.gif",100+(x*50),(50)+row*30);
-				game.entities.add(armoredAlien);
-				game.alienCount++;
-
-			}
-		}
-		chain+=2;
-		for (row=chain;row<chain+3;row++) {
-			for (x=0;x<rowLength;x++) {
-				if (x == 4 && row == 2 || x == 10 && row == 2 ){
-					Entity slow = new SlowDownEntity(game,"sprites/slowDown.gif",100+(x*50),(50)+row*30);
-					game.entities.add(slow);
-				}else{
-					Entity alien = new AlienEntity(game,"sprites/alien.gif",100+(x*50),(50)+row*30);
-					game.entities.add(alien);
-					game.alienCount++;
-				}
-			}
-		}
-		chain+=3;
-		for (row =chain;row<chain+2;row++) {
-			for (x=0;x<rowLength;x++) {
-				Entity armoredAlien = new ArmoredAlienEntity(game,"sprites/armoredAlien.gif","sprites/alien.gif",100+(x*50),(50)+row*30);
-				game.entities.add(armoredAlien);
-				game.alienCount++;
-			}
-		}
+	public int getLevelCount() {
+		return levels.length;
 	}
 
 	/**
-	 * faster aliens and all strong, the top row also fires back
+	 * Get a level
 	 * 
-	 * upgrade to having a second ship
+	 * @param level The number of the level, starting from 1
+	 * @return The compiled level
 	 */
-	public void SetLevelFourState() {
-		game.message = "That was close! Our scouts report a huge wave of invaders. We sent in another crew member for acistance. You're our last hope...";
-		game.ship = new ShipEntity(game,"sprites/shipPurple.gif",370,550, false);
-		game.entities.add(game.ship);
-		game.coShip = new ShipEntity(game,"sprites/shipGold.gif",370 - game.shipSpread, 550, true);
-		game.entities.add(game.coShip);
-
-		game.setShotSpeed(500, 200);
-		game.alienCount = 0;
-		int row;
-		int x;
-		int chain = 0;
-		for (row =chain;row<chain+10;row++) {
-			for (x=0;x<15;x++) {
-				if (x == 3 && row == 4 ||  x == 10 && row == 3 || x == 7 && row == 0 ){
-					Entity rapid = new SlowDownEntity(game,"sprites/slowDown.gif",100+(x*50),(50)+row*30);
-					game.entities.add(rapid);
-				}else if (x == 5 && row == 8 || x == 12 && row == 6) {
-					Entity rapid = new RapidFireEntity(game,"sprites/rapidFire.gif",100+(x*50),(50)+row*30);
-					game.entities.add(rapid);
-				}else{
-					Entity armoredAlien = new ArmoredAlienEntity(game,"sprites/armoredAlien.gif","sprites/alien.gif",100+(x*50),(50)+row*30);
-					game.entities.add(armoredAlien);
-					game.alienCount++;
-				}
-			}
-		}
-	}
-
-	public void GameCompleteState() {
-		game.message = "You did it! We are all saved thanks to you! Your name will be forever remembered. Wait... are there more?";
-		game.ship = new ShipEntity(game,"sprites/shipPurple.gif",370,550, false);
-		game.entities.add(game.ship);
-		game.hasCoShip = false;
-		stateNumber++;
-
+	public Level getLevel(int level) {
+		return levels[level - 1];
 	}
-	///////////////////////////////////////////////////////
 
 	public int getStateNumber() { return stateNumber;}
 }
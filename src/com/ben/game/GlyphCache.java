@@ -0,0 +1,189 @@
+package com.ben.game;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+
+/**
+ * A bitmap font for the HUD. Every printable ASCII character of the
+ * font is drawn once into a strip image, then text is drawn by copying
+ * each character's cell out of the strip at the font's advance widths.
+ * This gives the same pixels as drawing the text with the font, but
+ * without any glyph layout or String building. See {@link TextImage}
+ * for how the HUD uses it.
+ * <p>
+ * Characters outside the cached range are drawn as '?'.
+ */
+public class GlyphCache {
+	/** The single instance of this class, drawing in the default HUD font */
+	private static GlyphCache single;
+
+	/** The first character cached */
+	private static final char FIRST = ' ';
+	/** The last character cached */
+	private static final char LAST = '~';
+	/** The space left around each cell for glyphs that overhang their advance */
+	private static final int PADDING = 2;
+
+	/** The font the glyphs were drawn in */
+	private Font font;
+	/** The strip holding every glyph */
+	private Image image;
+	/** The x location of each glyph's cell in the strip */
+	private int[] cellX = new int[LAST - FIRST + 1];
+	/** The width of each glyph's cell in the strip */
+	private int[] cellWidth = new int[LAST - FIRST + 1];
+	/** The distance to move along after each glyph */
+	private int[] advance = new int[LAST - FIRST + 1];
+	/** The distance from the top of a cell to the baseline */
+	private int baseline;
+	/** The height of a cell */
+	private int cellHeight;
+
+	/**
+	 * Get the glyph cache for the font the HUD is drawn in
+	 * 
+	 * @return The glyph cache
+	 */
+	public static synchronized GlyphCache get() {
+		if (single == null) {
+			single = new GlyphCache(new Font(Font.DIALOG,Font.PLAIN,12),Color.white);
+		}
+		return single;
+	}
+
+	/**
+	 * Draw every glyph of a font into a new cache
+	 * 
+	 * @param font The font to draw
+	 * @param color The colour to draw the glyphs in
+	 */
+	public GlyphCache(Font font,Color color) {
+		this.font = font;
+
+		// measure the glyphs with a scratch image, then lay them out
+
+		// in a row with a little padding either side of each
+
+		BufferedImage scratch = new BufferedImage(1,1,BufferedImage.TYPE_INT_ARGB);
+		Graphics2D sg = scratch.createGraphics();
+		FontMetrics metrics = sg.getFontMetrics(font);
+		sg.dispose();
+
+		int x = 0;
+		for (char c=FIRST;c<=LAST;c++) {
+			int i = c - FIRST;
+			advance[i] = metrics.charWidth(c);
+			cellX[i] = x;
+			cellWidth[i] = advance[i] + (PADDING * 2);
+			x += cellWidth[i];
+		}
+		baseline = metrics.getMaxAscent() + PADDING;
+		cellHeight = baseline + metrics.getMaxDescent() + PADDING;
+
+		BufferedImage strip = new BufferedImage(x,cellHeight,BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = strip.createGraphics();
+		g.setFont(font);
+		g.setColor(color);
+		char[] glyph = new char[1];
+		for (char c=FIRST;c<=LAST;c++) {
+			int i = c - FIRST;
+			glyph[0] = c;
+			g.setClip(cellX[i],0,cellWidth[i],cellHeight);
+			g.drawChars(glyph,0,1,cellX[i] + PADDING,baseline);
+		}
+		g.dispose();
+		image = strip;
+	}
+
+	/**
+	 * Draw some characters
+	 * 
+	 * @param g The graphics context on which to draw
+	 * @param chars The characters to draw
+	 * @param offset The index of the first character to draw
+	 * @param length The number of characters to draw
+	 * @param x The x location of the start of the text
+	 * @param y The y location of the text's baseline
+	 */
+	public void drawChars(Graphics g,char[] chars,int offset,int length,int x,int y) {
+		int top = y - baseline;
+		for (int n=offset;n<offset+length;n++) {
+			int i = index(chars[n]);
+			int left = x - PADDING;
+			g.drawImage(image,left,top,left + cellWidth[i],top + cellHeight,
+					cellX[i],0,cellX[i] + cellWidth[i],cellHeight,null);
+			x += advance[i];
+		}
+	}
+
+	/**
+	 * Get the width of some characters when drawn
+	 * 
+	 * @param chars The characters to measure
+	 * @param offset The index of the first character
+	 * @param length The number of characters
+	 * @return The width in pixels
+	 */
+	public int charsWidth(char[] chars,int offset,int length) {
+		int width = 0;
+		for (int n=offset;n<offset+length;n++) {
+			width += advance[index(chars[n])];
+		}
+		return width;
+	}
+
+	/**
+	 * Get the index of a character's cell
+	 * 
+	 * @param c The character
+	 * @return The index of its cell, or that of '?' if it isn't cached
+	 */
+	private static int index(char c) {
+		if (c < FIRST || c > LAST) {
+			c = '?';
+		}
+		return c - FIRST;
+	}
+
+	/**
+	 * Get the font the glyphs were drawn in
+	 * 
+	 * @return The font
+	 */
+	public Font getFont() {
+		return font;
+	}
+
+	/**
+	 * Get the height of a glyph's cell, the space one line of text
+	 * needs including the padding above and below
+	 * 
+	 * @return The height in pixels
+	 */
+	public int getCellHeight() {
+		return cellHeight;
+	}
+
+	/**
+	 * Get the distance from the top of a glyph's cell to the baseline
+	 * 
+	 * @return The distance in pixels
+	 */
+	public int getBaseline() {
+		return baseline;
+	}
+
+	/**
+	 * Get the space left either side of each glyph's advance
+	 * 
+	 * @return The padding in pixels
+	 */
+	public int getPadding() {
+		return PADDING;
+	}
+}
@@ -0,0 +1,162 @@
+package com.ben.game;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Records and checks golden images of the game's rendering. Each level
+ * listed in the level manifest is played headless by the autopilot
+ * while every tick is drawn into an {@link ImageRenderTarget} through
+ * the same code that draws to the screen. The frame showing the level's
+ * dialogue and the frame after a fixed number of ticks of play are
+ * saved as PNGs, or compared pixel for pixel against ones saved
+ * earlier.
+ * <p>
+ * Usage: GoldenImages record|verify [directory] [ticks]
+ * <p>
+ * The settings described in {@link Game#configure()} apply, so golden
+ * images recorded with whole frames can be checked against the dirty
+ * region renderer with -Dinvaders.dirtyRegions=true, or against the
+ * volatile sprite path. Text is drawn with the platform's fonts, so
+ * golden images should be recorded on the machine that checks them.
+ * Verify exits with status 1 if any frame differs.
+ */
+public class GoldenImages {
+	/** The width of a frame */
+	private static final int WIDTH = 800;
+	/** The height of a frame */
+	private static final int HEIGHT = 600;
+
+	/** True if frames are being saved rather than checked */
+	private boolean record;
+	/** The directory the golden images are kept in */
+	private File directory;
+	/** The number of frames checked that didn't match */
+	private int failures;
+
+	/**
+	 * Create a new recorder or checker
+	 * 
+	 * @param record True to save frames rather than check them
+	 * @param directory The directory the golden images are kept in
+	 */
+	public GoldenImages(boolean record,File directory) {
+		this.record = record;
+		this.directory = directory;
+	}
+
+	/**
+	 * Draw a level's frames and record or check them
+	 * 
+	 * @param level The level to draw
+	 * @param ticks The number of ticks to play before the second frame
+	 * @throws IOException Indicates a golden image couldn't be read or written
+	 */
+	public void level(int level,int ticks) throws IOException {
+		HeadlessGame headless = new HeadlessGame();
+		Game game = headless.getGame();
+		ImageRenderTarget target = new ImageRenderTarget(WIDTH,HEIGHT);
+		game.setRenderTarget(target);
+		game.getGameStateManager().SetStateNumber(level);
+
+		game.drawFrame(1);
+		frame("level"+level+"-dialogue",target.getImage());
+		for (int i=0;i<ticks;i++) {
+			headless.run(1,10);
+			game.drawFrame(1);
+		}
+		frame("level"+level+"-play",target.getImage());
+	}
+
+	/**
+	 * Record or check one frame
+	 * 
+	 * @param name The name of the frame
+	 * @param image The image holding the frame
+	 * @throws IOException Indicates the golden image couldn't be read or written
+	 */
+	private void frame(String name,BufferedImage image) throws IOException {
+		File file = new File(directory,name+".png");
+		if (record) {
+			ImageIO.write(image,"png",file);
+			System.out.println("recorded "+file);
+			return;
+		}
+
+		BufferedImage golden = ImageIO.read(file);
+		if (golden == null) {
+			throw new IOException("Unable to read golden image: "+file);
+		}
+		int differences = compare(golden,image);
+		if (differences == 0) {
+			System.out.println("ok       "+name);
+		} else {
+			System.out.println("FAILED   "+name+" - "+differences+" pixels differ");
+			ImageIO.write(image,"png",new File(directory,name+"-actual.png"));
+			failures++;
+		}
+	}
+
+	/**
+	 * Count the pixels that differ between two images
+	 * 
+	 * @param expected The golden image
+	 * @param actual The image drawn
+	 * @return The number of pixels that differ, every pixel if the sizes don't match
+	 */
+	public static int compare(BufferedImage expected,BufferedImage actual) {
+		int width = actual.getWidth();
+		int height = actual.getHeight();
+		if (expected.getWidth() != width || expected.getHeight() != height) {
+			return width * height;
+		}
+		int[] a = expected.getRGB(0,0,width,height,null,0,width);
+		int[] b = actual.getRGB(0,0,width,height,null,0,width);
+		int differences = 0;
+		for (int i=0;i<a.length;i++) {
+			if ((a[i] & 0xFFFFFF) != (b[i] & 0xFFFFFF)) {
+				differences++;
+			}
+		}
+		return differences;
+	}
+
+	/**
+	 * Get the number of frames that didn't match their golden image
+	 * 
+	 * @return The number of failures
+	 */
+	public int getFailures() {
+		return failures;
+	}
+
+	/**
+	 * The entry point for recording or checking golden images
+	 * 
+	 * @param argv record or verify, the directory and the number of ticks to play, the last two optional
+	 */
+	public static void main(String argv[]) throws IOException {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		if (argv.length < 1 || !(argv[0].equals("record") || argv[0].equals("verify"))) {
+			System.err.println("Usage: GoldenImages record|verify [directory] [ticks]");
+			System.exit(2);
+		}
+		File directory = new File(argv.length > 1 ? argv[1] : "golden");
+		int ticks = argv.length > 2 ? Integer.parseInt(argv[2]) : 200;
+		directory.mkdirs();
+
+		GoldenImages golden = new GoldenImages(argv[0].equals("record"),directory);
+		int levels = LevelStore.get().getLevels().length;
+		for (int level=1;level<=levels;level++) {
+			golden.level(level,ticks);
+		}
+		if (golden.getFailures() > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package com.ben.game;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Runs the game logic with no window, canvas or buffer strategy so it
+ * can be soak tested and benchmarked on machines without a display.
+ * The same entities, levels and score keeping are used as in the real
+ * game, but the simulation is stepped as fast as the CPU allows and
+ * the player is replaced with a simple autopilot that sweeps the ship
+ * back and forth with the fire button held down and continues through
+ * every dialogue.
+ * <p>
+ * Usage: HeadlessGame [ticks] [step ms]
+ * <p>
+ * The settings described in {@link Game#configure()} apply here too,
+ * with -Dinvaders.profile=true a summary of the phase timings is
+ * printed at the end of the run.
+ */
+public class HeadlessGame {
+	/** The default number of ticks to run */
+	private static final int DEFAULT_TICKS = 100000;
+	/** The default length of a tick (ms) */
+	private static final double DEFAULT_STEP = 10;
+
+	/** The game being driven */
+	private Game game;
+	/** The number of ticks run so far */
+	private long ticks;
+	/** The number of times a dialogue was continued from */
+	private int dialogues;
+
+	/**
+	 * Create a new headless game
+	 */
+	public HeadlessGame() {
+		game = new Game(false);
+		game.configure();
+	}
+
+	/**
+	 * Get the game being driven
+	 * 
+	 * @return The game
+	 */
+	public Game getGame() {
+		return game;
+	}
+
+	/**
+	 * Run a number of simulation ticks, playing the game with the autopilot
+	 * 
+	 * @param count The number of ticks to run
+	 * @param step The length of each tick (ms)
+	 */
+	public void run(long count,double step) {
+		for (long i=0;i<count;i++) {
+			autopilot();
+			game.tick(step);
+			game.getProfiler().endFrame();
+			ticks++;
+		}
+	}
+
+	/**
+	 * Stand in for the player. Keeps the fire button held and sweeps the
+	 * ship from side to side, turning round when it hits an edge.
+	 */
+	private void autopilot() {
+		if (game.isWaitingForKeyPress()) {
+			game.continueFromDialogue();
+			dialogues++;
+			game.rightPressed = true;
+			return;
+		}
+
+		game.firePressed = true;
+		if (game.ship.getX() >= 740) {
+			game.rightPressed = false;
+			game.leftPressed = true;
+		} else if (game.ship.getX() <= 20 + (game.hasCoShip ? game.shipSpread : 0)) {
+			game.leftPressed = false;
+			game.rightPressed = true;
+		} else if (!game.leftPressed && !game.rightPressed) {
+			game.rightPressed = true;
+		}
+	}
+
+	/**
+	 * Get the number of ticks run so far
+	 * 
+	 * @return The number of ticks
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Get the number of dialogues the autopilot has continued through,
+	 * one for every level start, win and death
+	 * 
+	 * @return The number of dialogues
+	 */
+	public int getDialogues() {
+		return dialogues;
+	}
+
+	/**
+	 * The entry point for headless runs. Runs the requested number of
+	 * ticks and reports the simulation rate and where the game got to.
+	 * 
+	 * @param argv The number of ticks and the tick length in ms, both optional
+	 */
+	public static void main(String argv[]) {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		long count = argv.length > 0 ? Long.parseLong(argv[0]) : DEFAULT_TICKS;
+		double step = argv.length > 1 ? Double.parseDouble(argv[1]) : DEFAULT_STEP;
+
+		HeadlessGame headless = new HeadlessGame();
+		long collections = -gcCount();
+		long collectionTime = -gcTime();
+		long start = System.nanoTime();
+		headless.run(count,step);
+		long elapsed = System.nanoTime() - start;
+		collections += gcCount();
+		collectionTime += gcTime();
+
+		Game game = headless.getGame();
+		System.out.println("ticks:      "+headless.getTicks());
+		System.out.println("elapsed:    "+(elapsed / 1000000)+" ms");
+		System.out.println("ticks/sec:  "+(long) (headless.getTicks() / (elapsed / 1000000000.0)));
+		System.out.println("dialogues:  "+headless.getDialogues());
+		System.out.println("level:      "+game.getGameStateManager().getStateNumber());
+		System.out.println("score:      "+game.getScoreKeeper().getScore());
+		System.out.println("killed:     "+game.getScoreKeeper().getTotalKilled());
+		System.out.println("gc runs:    "+collections);
+		System.out.println("gc time:    "+collectionTime+" ms");
+		System.out.println();
+		System.out.println(game.getPoolStats());
+		System.out.println(SpriteStore.get().getCacheStats());
+
+		FrameProfiler profiler = game.getProfiler();
+		if (profiler.isEnabled()) {
+			profiler.stopCsv();
+			System.out.println();
+			System.out.println("phase (us, last frames)   p50      p95      p99      max");
+			for (int i=0;i<FrameProfiler.PHASES;i++) {
+				RollingHistogram histogram = profiler.getHistogram(i);
+				System.out.println(String.format("%-22s %8.1f %8.1f %8.1f %8.1f", FrameProfiler.getName(i),
+						histogram.percentile(0.50) / 1000.0, histogram.percentile(0.95) / 1000.0,
+						histogram.percentile(0.99) / 1000.0, histogram.max() / 1000.0));
+			}
+			for (int i=0;i<FrameProfiler.COUNTERS;i++) {
+				RollingHistogram histogram = profiler.getCounterHistogram(i);
+				System.out.println(String.format("%-22s %8d %8d %8d %8d", FrameProfiler.getCounterName(i),
+						histogram.percentile(0.50), histogram.percentile(0.95),
+						histogram.percentile(0.99), histogram.max()));
+			}
+		}
+	}
+
+	/**
+	 * Get the number of garbage collections run so far, over all collectors
+	 * 
+	 * @return The number of collections
+	 */
+	private static long gcCount() {
+		long total = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0,bean.getCollectionCount());
+		}
+		return total;
+	}
+
+	/**
+	 * Get the time spent in garbage collection so far, over all collectors
+	 * 
+	 * @return The time spent collecting (ms)
+	 */
+	private static long gcTime() {
+		long total = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0,bean.getCollectionTime());
+		}
+		return total;
+	}
+}
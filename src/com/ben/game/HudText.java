@@ -0,0 +1,106 @@
+package com.ben.game;
+
+/**
+ * A line of HUD text made of a fixed label followed by a number, e.g.
+ * "Score: 150". The characters are kept in a buffer that's rewritten
+ * in place when the number changes, so updating and drawing the HUD
+ * never builds a String.
+ */
+public class HudText {
+	/** The characters of the text, only the first length are used */
+	private char[] chars;
+	/** The number of characters in use */
+	private int length;
+	/** The length of the label */
+	private int labelLength;
+	/** The number currently shown */
+	private long value;
+
+	/**
+	 * Create a new line of HUD text showing zero
+	 * 
+	 * @param label The text shown before the number
+	 */
+	public HudText(String label) {
+		labelLength = label.length();
+		chars = new char[labelLength + 20];
+		label.getChars(0,labelLength,chars,0);
+		setValue(0);
+	}
+
+	/**
+	 * Create a copy of another line of HUD text
+	 * 
+	 * @param other The text to copy
+	 */
+	public HudText(HudText other) {
+		chars = new char[other.chars.length];
+		copyFrom(other);
+	}
+
+	/**
+	 * Change the number shown
+	 * 
+	 * @param value The new number, must not be negative
+	 */
+	public void setValue(long value) {
+		this.value = value;
+
+		// count the digits then write them backwards from the end
+
+		int digits = 1;
+		for (long v=value / 10;v>0;v/=10) {
+			digits++;
+		}
+		length = labelLength + digits;
+		int i = length;
+		do {
+			chars[--i] = (char) ('0' + (value % 10));
+			value /= 10;
+		} while (value > 0);
+	}
+
+	/**
+	 * Make this text the same as another, without allocating
+	 * 
+	 * @param other The text to copy
+	 */
+	public void copyFrom(HudText other) {
+		System.arraycopy(other.chars,0,chars,0,other.length);
+		length = other.length;
+		labelLength = other.labelLength;
+		value = other.value;
+	}
+
+	/**
+	 * Get the number shown
+	 * 
+	 * @return The number
+	 */
+	public long getValue() {
+		return value;
+	}
+
+	/**
+	 * Get the characters of the text. Only the first {@link #length()}
+	 * are meaningful.
+	 * 
+	 * @return The characters
+	 */
+	public char[] chars() {
+		return chars;
+	}
+
+	/**
+	 * Get the number of characters in the text
+	 * 
+	 * @return The length
+	 */
+	public int length() {
+		return length;
+	}
+
+	public String toString() {
+		return new String(chars,0,length);
+	}
+}
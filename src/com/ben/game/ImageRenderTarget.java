@@ -0,0 +1,66 @@
+package com.ben.game;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws frames into an image in memory using Java2D's software loops.
+ * There is a single buffer which always holds the last frame drawn, so
+ * after each frame the image shows exactly what would have been on the
+ * screen.
+ */
+public class ImageRenderTarget implements RenderTarget {
+	/** The image frames are drawn into */
+	private BufferedImage image;
+	/** The number of frames shown */
+	private long frames;
+
+	/**
+	 * Create a new target
+	 * 
+	 * @param width The width of the frames
+	 * @param height The height of the frames
+	 */
+	public ImageRenderTarget(int width,int height) {
+		image = new BufferedImage(width,height,BufferedImage.TYPE_INT_RGB);
+	}
+
+	public Graphics2D getDrawGraphics() {
+		return image.createGraphics();
+	}
+
+	public void show() {
+		frames++;
+	}
+
+	public boolean contentsLost() {
+		return false;
+	}
+
+	public boolean isBackBufferPreserved() {
+		return true;
+	}
+
+	public GraphicsConfiguration getGraphicsConfiguration() {
+		return null;
+	}
+
+	/**
+	 * Get the image holding the last frame drawn
+	 * 
+	 * @return The image
+	 */
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	/**
+	 * Get the number of frames that have been shown
+	 * 
+	 * @return The number of frames
+	 */
+	public long getFrames() {
+		return frames;
+	}
+}
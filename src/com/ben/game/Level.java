@@ -0,0 +1,474 @@
+package com.ben.game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+
+/**
+ * One level of the game, compiled from a short text description. A
+ * level file is a list of settings, one per line, followed by the
+ * alien formation drawn as a grid of characters:
+ * <pre>
+ * # comments and blank lines are ignored
+ * message Defend the earth from these invaders quick!
+ * ship sprites/ship.gif
+ * shot 300 500
+ * shipSpeed 300
+ * type A alien sprites/alien.gif
+ * type H armored sprites/armoredAlien.gif sprites/alien.gif
+ * grid
+ * AAAAAAAAAAAA
+ * HH.HHHH.HHHH
+ * end
+ * </pre>
+ * The settings are:
+ * <p>
+ * - message - the dialogue shown before the level, several lines run together<br>
+ * - ship - the sprite of the player's ship<br>
+ * - coShip - the sprite of a second ship flying alongside, if any<br>
+ * - shot - the speed of the ship's shots and the time between them (ms)<br>
+ * - shipSpeed - the speed of the player's ship<br>
+ * - speed - the speed the formation starts at<br>
+ * - origin - the location of the top left cell of the grid<br>
+ * - spacing - the distance between columns and between rows of the grid<br>
+ * - type - a grid character, what it spawns (alien, armored, rapidFire
+ * or slowDown) and its sprite, armored aliens also naming the sprite
+ * shown once their armor is broken
+ * <p>
+ * Only the ship is required. A shot or ship speed that isn't given
+ * carries over from the level before, and a '.' in the grid is an
+ * empty cell. Grid rows are read exactly as drawn, so a blank or
+ * indented row is an error rather than being dropped or shifted.
+ * <p>
+ * Compiling works out the kind, sprite handle, grid cell and screen
+ * location of every member of the formation up front, so starting a
+ * level is one pass over flat arrays handing entities out of the pools.
+ * A compiled level never changes, so it is safe to share and reuse,
+ * see {@link LevelStore}.
+ */
+public final class Level {
+	/** A plain alien */
+	public static final int ALIEN = 0;
+	/** An alien that takes two hits */
+	public static final int ARMORED_ALIEN = 1;
+	/** A rapid fire power up */
+	public static final int RAPID_FIRE = 2;
+	/** A slow down power up */
+	public static final int SLOW_DOWN = 3;
+	/** The name of each kind, as used in level files */
+	private static final String[] KINDS = {"alien","armored","rapidFire","slowDown"};
+
+	/** The grid character for an empty cell */
+	private static final char EMPTY = '.';
+	/** The x location of the ship at the start of a level */
+	private static final int SHIP_X = 370;
+	/** The y location of the ship at the start of a level */
+	private static final int SHIP_Y = 550;
+	/** The x location of the first column of aliens, unless the level says otherwise */
+	private static final int ORIGIN_X = 100;
+	/** The y location of the first row of aliens, unless the level says otherwise */
+	private static final int ORIGIN_Y = 50;
+	/** The distance between columns of aliens, unless the level says otherwise */
+	private static final int COLUMN_SPACING = 50;
+	/** The distance between rows of aliens, unless the level says otherwise */
+	private static final int ROW_SPACING = 30;
+	/** The speed the aliens start at, unless the level says otherwise */
+	private static final double SPEED = 75;
+	/** Marks a ship setting the level leaves as it was */
+	private static final double UNCHANGED = -1;
+
+	/** The name of the level, normally the reference it was loaded from */
+	private final String name;
+	/** The dialogue shown before the level */
+	private final String message;
+	/** The handle of the player's ship sprite */
+	private final int shipSprite;
+	/** The handle of the second ship's sprite, or -1 if there isn't one */
+	private final int coShipSprite;
+	/** The speed of the ship's shots, or UNCHANGED */
+	private final double shotSpeed;
+	/** The time between the ship's shots (ms), or UNCHANGED */
+	private final double shotInterval;
+	/** The speed of the player's ship, or UNCHANGED */
+	private final double shipSpeed;
+	/** The x location of the first column of the formation */
+	private final int originX;
+	/** The y location of the first row of the formation */
+	private final int originY;
+	/** The distance between columns of the formation */
+	private final int columnSpacing;
+	/** The distance between rows of the formation */
+	private final int rowSpacing;
+	/** The speed the formation starts at */
+	private final double speed;
+	/** The kind of each member of the formation, in the order they are spawned */
+	private final int[] kinds;
+	/** The handle of each member's sprite */
+	private final int[] sprites;
+	/** The handle of each armored alien's sprite once its armor is broken */
+	private final int[] brokenSprites;
+	/** The grid column of each member */
+	private final int[] columns;
+	/** The grid row of each member */
+	private final int[] rows;
+	/** The x location of each member */
+	private final int[] xs;
+	/** The y location of each member */
+	private final int[] ys;
+	/** The number of members of each kind */
+	private final int[] counts;
+	/** The reference of every sprite the level uses */
+	private final String[] spriteRefs;
+
+	/**
+	 * Create a compiled level, see {@link #compile(String,Reader)}
+	 */
+	private Level(String name,String message,int shipSprite,int coShipSprite,double shotSpeed,double shotInterval,
+			double shipSpeed,int originX,int originY,int columnSpacing,int rowSpacing,double speed,int[] kinds,
+			int[] sprites,int[] brokenSprites,int[] columns,int[] rows,String[] spriteRefs) {
+		this.name = name;
+		this.message = message;
+		this.shipSprite = shipSprite;
+		this.coShipSprite = coShipSprite;
+		this.shotSpeed = shotSpeed;
+		this.shotInterval = shotInterval;
+		this.shipSpeed = shipSpeed;
+		this.originX = originX;
+		this.originY = originY;
+		this.columnSpacing = columnSpacing;
+		this.rowSpacing = rowSpacing;
+		this.speed = speed;
+		this.kinds = kinds;
+		this.sprites = sprites;
+		this.brokenSprites = brokenSprites;
+		this.columns = columns;
+		this.rows = rows;
+		this.spriteRefs = spriteRefs;
+
+		xs = new int[kinds.length];
+		ys = new int[kinds.length];
+		counts = new int[KINDS.length];
+		for (int i=0;i<kinds.length;i++) {
+			xs[i] = originX + (columns[i] * columnSpacing);
+			ys[i] = originY + (rows[i] * rowSpacing);
+			counts[kinds[i]]++;
+		}
+	}
+
+	/**
+	 * Read and compile a level
+	 * 
+	 * @param name The name of the level, used in error messages
+	 * @param in The text of the level
+	 * @return The compiled level
+	 * @throws IOException Indicates the level couldn't be read or isn't valid
+	 */
+	public static Level compile(String name,Reader in) throws IOException {
+		BufferedReader reader = new BufferedReader(in);
+		String message = null;
+		String shipRef = null;
+		String coShipRef = null;
+		double shotSpeed = UNCHANGED;
+		double shotInterval = UNCHANGED;
+		double shipSpeed = UNCHANGED;
+		int originX = ORIGIN_X;
+		int originY = ORIGIN_Y;
+		int columnSpacing = COLUMN_SPACING;
+		int rowSpacing = ROW_SPACING;
+		double speed = SPEED;
+		int[] typeKinds = new int[128];
+		String[] typeRefs = new String[128];
+		String[] typeBrokenRefs = new String[128];
+		ArrayList grid = new ArrayList();
+		ArrayList gridLines = new ArrayList();
+		int gridLine = 0;
+		boolean inGrid = false;
+
+		int lineNumber = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+
+			// grid rows are taken as they stand, only trailing spaces
+
+			// dropped, so every row and column lands where it was drawn
+
+			if (inGrid) {
+				int length = line.length();
+				while (length > 0 && Character.isWhitespace(line.charAt(length - 1))) {
+					length--;
+				}
+				String row = line.substring(0,length);
+				if (row.trim().equals("end")) {
+					inGrid = false;
+				} else if (row.length() == 0) {
+					throw new IOException(name+":"+lineNumber+": blank row in grid, use '"+EMPTY+"' for empty cells");
+				} else if (Character.isWhitespace(row.charAt(0))) {
+					throw new IOException(name+":"+lineNumber+": indented row in grid, use '"+EMPTY+"' for empty cells");
+				} else if (!row.startsWith("#")) {
+					grid.add(row);
+					gridLines.add(Integer.valueOf(lineNumber));
+				}
+				continue;
+			}
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+
+			String[] words = line.split("\\s+");
+			String key = words[0];
+			try {
+				if (key.equals("message")) {
+					String text = line.substring(key.length()).trim();
+					message = message == null ? text : message+" "+text;
+				} else if (key.equals("ship")) {
+					shipRef = argument(words,1);
+				} else if (key.equals("coShip")) {
+					coShipRef = argument(words,1);
+				} else if (key.equals("shot")) {
+					shotSpeed = Double.parseDouble(argument(words,1));
+					shotInterval = Double.parseDouble(argument(words,2));
+				} else if (key.equals("shipSpeed")) {
+					shipSpeed = Double.parseDouble(argument(words,1));
+				} else if (key.equals("speed")) {
+					speed = Double.parseDouble(argument(words,1));
+				} else if (key.equals("origin")) {
+					originX = Integer.parseInt(argument(words,1));
+					originY = Integer.parseInt(argument(words,2));
+				} else if (key.equals("spacing")) {
+					columnSpacing = Integer.parseInt(argument(words,1));
+					rowSpacing = Integer.parseInt(argument(words,2));
+				} else if (key.equals("type")) {
+					String symbol = argument(words,1);
+					char c = symbol.charAt(0);
+					if (symbol.length() != 1 || c == EMPTY || c >= typeRefs.length) {
+						throw new IllegalArgumentException("bad grid character '"+symbol+"'");
+					}
+					int kind = kind(argument(words,2));
+					typeKinds[c] = kind;
+					typeRefs[c] = argument(words,3);
+					typeBrokenRefs[c] = kind == ARMORED_ALIEN ? argument(words,4) : null;
+				} else if (key.equals("grid")) {
+					inGrid = true;
+					gridLine = lineNumber;
+				} else {
+					throw new IllegalArgumentException("unknown setting '"+key+"'");
+				}
+			} catch (NumberFormatException e) {
+				throw new IOException(name+":"+lineNumber+": bad number in '"+line+"'");
+			} catch (IllegalArgumentException e) {
+				throw new IOException(name+":"+lineNumber+": "+e.getMessage());
+			}
+		}
+		if (inGrid) {
+			throw new IOException(name+":"+gridLine+": grid has no end");
+		}
+		if (shipRef == null) {
+			throw new IOException(name+": no ship given");
+		}
+
+		// lay the grid out row by row, left to right, which is the
+
+		// order the members are spawned in
+
+		SpriteStore store = SpriteStore.get();
+		ArrayList refs = new ArrayList();
+		int[] typeSprites = new int[128];
+		int[] typeBrokenSprites = new int[128];
+		boolean[] resolved = new boolean[128];
+		int cells = 0;
+		for (int row=0;row<grid.size();row++) {
+			String cellsInRow = (String) grid.get(row);
+			for (int column=0;column<cellsInRow.length();column++) {
+				char c = cellsInRow.charAt(column);
+				if (c == EMPTY) {
+					continue;
+				}
+				if (c >= typeRefs.length || typeRefs[c] == null) {
+					throw new IOException(name+":"+gridLines.get(row)+": no type given for '"+c+"'");
+				}
+				if (!resolved[c]) {
+					resolved[c] = true;
+					typeSprites[c] = store.getHandle(typeRefs[c]);
+					typeBrokenSprites[c] = typeBrokenRefs[c] == null ? -1 : store.getHandle(typeBrokenRefs[c]);
+					if (!refs.contains(typeRefs[c])) {
+						refs.add(typeRefs[c]);
+					}
+					if (typeBrokenRefs[c] != null && !refs.contains(typeBrokenRefs[c])) {
+						refs.add(typeBrokenRefs[c]);
+					}
+				}
+				cells++;
+			}
+		}
+
+		int[] kinds = new int[cells];
+		int[] sprites = new int[cells];
+		int[] brokenSprites = new int[cells];
+		int[] columns = new int[cells];
+		int[] rows = new int[cells];
+		int n = 0;
+		for (int row=0;row<grid.size();row++) {
+			String cellsInRow = (String) grid.get(row);
+			for (int column=0;column<cellsInRow.length();column++) {
+				char c = cellsInRow.charAt(column);
+				if (c == EMPTY) {
+					continue;
+				}
+				kinds[n] = typeKinds[c];
+				sprites[n] = typeSprites[c];
+				brokenSprites[n] = typeBrokenSprites[c];
+				columns[n] = column;
+				rows[n] = row;
+				n++;
+			}
+		}
+
+		refs.remove(shipRef);
+		refs.add(0,shipRef);
+		if (coShipRef != null && !refs.contains(coShipRef)) {
+			refs.add(1,coShipRef);
+		}
+		return new Level(name,message == null ? "" : message,store.getHandle(shipRef),
+				coShipRef == null ? -1 : store.getHandle(coShipRef),shotSpeed,shotInterval,shipSpeed,
+				originX,originY,columnSpacing,rowSpacing,speed,kinds,sprites,brokenSprites,columns,rows,
+				(String[]) refs.toArray(new String[refs.size()]));
+	}
+
+	/**
+	 * Create a level with no aliens that just shows a message, used in
+	 * place of a level that couldn't be loaded so the game carries on
+	 * 
+	 * @param name The name of the level
+	 * @param message The message to show
+	 * @return The level
+	 */
+	public static Level placeholder(String name,String message) {
+		String shipRef = "sprites/ship.gif";
+		return new Level(name,message,SpriteStore.get().getHandle(shipRef),-1,UNCHANGED,UNCHANGED,UNCHANGED,
+				ORIGIN_X,ORIGIN_Y,COLUMN_SPACING,ROW_SPACING,SPEED,new int[0],new int[0],new int[0],new int[0],
+				new int[0],new String[] {shipRef});
+	}
+
+	/**
+	 * Get one of the words of a setting
+	 * 
+	 * @param words The words of the line
+	 * @param index The index of the word wanted
+	 * @return The word
+	 */
+	private static String argument(String[] words,int index) {
+		if (index >= words.length) {
+			throw new IllegalArgumentException("'"+words[0]+"' needs "+index+" value"+(index == 1 ? "" : "s"));
+		}
+		return words[index];
+	}
+
+	/**
+	 * Find the kind of entity a name from a level file stands for
+	 * 
+	 * @param kindName The name of the kind
+	 * @return The kind
+	 */
+	private static int kind(String kindName) {
+		for (int i=0;i<KINDS.length;i++) {
+			if (KINDS[i].equals(kindName)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("unknown kind '"+kindName+"'");
+	}
+
+	/**
+	 * Set the level up in a game whose entities have just been
+	 * cleared: the message, the ship and its loadout, and the formation
+	 * 
+	 * @param game The game to set up
+	 */
+	public void spawn(Game game) {
+		game.message = message;
+		game.hasCoShip = false;
+		game.ship = new ShipEntity(game,shipSprite,SHIP_X,SHIP_Y,false);
+		game.addEntity(game.ship);
+		if (coShipSprite >= 0) {
+			game.coShip = new ShipEntity(game,coShipSprite,SHIP_X - game.shipSpread,SHIP_Y,true);
+			game.addEntity(game.coShip);
+		}
+		if (shotSpeed != UNCHANGED) {
+			game.setShotSpeed(shotSpeed,shotInterval);
+		}
+		if (shipSpeed != UNCHANGED) {
+			game.setShipSpeed(shipSpeed);
+		}
+
+		game.reserveWave(counts[ALIEN],counts[ARMORED_ALIEN],counts[RAPID_FIRE],counts[SLOW_DOWN]);
+		game.getFormation().reset(originX,originY,columnSpacing,rowSpacing,speed);
+		for (int i=0;i<kinds.length;i++) {
+			Entity entity;
+			switch (kinds[i]) {
+			case ARMORED_ALIEN:
+				entity = game.createArmoredAlien(sprites[i],brokenSprites[i],xs[i],ys[i]);
+				break;
+			case RAPID_FIRE:
+				entity = game.createRapidFire(sprites[i],xs[i],ys[i]);
+				break;
+			case SLOW_DOWN:
+				entity = game.createSlowDown(sprites[i],xs[i],ys[i]);
+				break;
+			default:
+				entity = game.createAlien(sprites[i],xs[i],ys[i]);
+				break;
+			}
+			game.addFormationEntity(entity,columns[i],rows[i]);
+		}
+	}
+
+	/**
+	 * Get the name of the level
+	 * 
+	 * @return The name, normally the reference it was loaded from
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the dialogue shown before the level
+	 * 
+	 * @return The message
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Get the number of aliens and power ups in the formation
+	 * 
+	 * @return The number of members
+	 */
+	public int getFormationSize() {
+		return kinds.length;
+	}
+
+	/**
+	 * Get the number of members of the formation of one kind
+	 * 
+	 * @param kind The kind, e.g. {@link #ARMORED_ALIEN}
+	 * @return The number of members
+	 */
+	public int getCount(int kind) {
+		return counts[kind];
+	}
+
+	/**
+	 * Get the reference of every sprite the level uses, so they can be
+	 * held in the sprite store while it is played
+	 * 
+	 * @return A copy of the references
+	 */
+	public String[] getSpriteRefs() {
+		return spriteRefs.clone();
+	}
+}
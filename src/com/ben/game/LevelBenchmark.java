@@ -0,0 +1,119 @@
+package com.ben.game;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Measures loading and spawning a large wave from a level description.
+ * A wave of the requested size is generated as level text, mostly
+ * plain and armored aliens with a few power ups, and compiled once.
+ * Each run then fetches the compiled level from the {@link LevelStore}
+ * cache and spawns it into a headless game, the way a level starts in
+ * play. The median and worst times are reported against the 1ms
+ * target, along with the time to parse the text from scratch.
+ * <p>
+ * Usage: LevelBenchmark [aliens] [runs]
+ */
+public class LevelBenchmark {
+	/** The number of runs before timing starts */
+	private static final int WARM_UP = 500;
+	/** The longest a cached wave may take to load and spawn (ms) */
+	private static final double TARGET = 1;
+	/** The number of columns in the generated wave */
+	private static final int COLUMNS = 40;
+
+	/**
+	 * Generate the text of a level with a wave of the given size
+	 *
+	 * @param aliens The number of aliens and power ups in the wave
+	 * @return The level text
+	 */
+	private static String createWave(int aliens) {
+		StringBuilder text = new StringBuilder();
+		text.append("message Benchmark wave\n");
+		text.append("ship sprites/ship.gif\n");
+		text.append("origin 20 40\n");
+		text.append("spacing 18 12\n");
+		text.append("type A alien sprites/alien.gif\n");
+		text.append("type H armored sprites/armoredAlien.gif sprites/alien.gif\n");
+		text.append("type R rapidFire sprites/rapidFire.gif\n");
+		text.append("type S slowDown sprites/slowDown.gif\n");
+		text.append("grid\n");
+		for (int i=0;i<aliens;i++) {
+			if (i % 97 == 13) {
+				text.append('R');
+			} else if (i % 89 == 7) {
+				text.append('S');
+			} else {
+				text.append((i / COLUMNS) % 2 == 0 ? 'H' : 'A');
+			}
+			if (i % COLUMNS == COLUMNS - 1 || i == aliens - 1) {
+				text.append('\n');
+			}
+		}
+		text.append("end\n");
+		return text.toString();
+	}
+
+	/**
+	 * The entry point for the benchmark
+	 *
+	 * @param argv The size of the wave and the number of runs to time, both optional
+	 * @throws IOException Indicates the generated level wasn't valid
+	 */
+	public static void main(String argv[]) throws IOException {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		int aliens = argv.length > 0 ? Integer.parseInt(argv[0]) : 1000;
+		int runs = argv.length > 1 ? Integer.parseInt(argv[1]) : 2000;
+
+		Game game = new Game(false);
+		String name = "benchmark-"+aliens;
+		String text = createWave(aliens);
+
+		// the first request parses and compiles the level, every
+
+		// later one is answered from the cache
+
+		long start = System.nanoTime();
+		Level level = LevelStore.get().getLevel(name,text);
+		long firstLoad = System.nanoTime() - start;
+
+		long[] times = new long[runs];
+		for (int i=0;i<WARM_UP + runs;i++) {
+			game.clearEntities();
+			start = System.nanoTime();
+			level = LevelStore.get().getLevel(name,text);
+			level.spawn(game);
+			long elapsed = System.nanoTime() - start;
+			if (i >= WARM_UP) {
+				times[i - WARM_UP] = elapsed;
+			}
+		}
+		Arrays.sort(times);
+		double median = times[runs / 2] / 1000000.0;
+		double worst = times[runs - 1] / 1000000.0;
+
+		// parsing again from scratch, for comparison
+
+		int parses = Math.max(1,runs / 10);
+		start = System.nanoTime();
+		for (int i=0;i<parses;i++) {
+			Level.compile(name,new StringReader(text));
+		}
+		double parse = (System.nanoTime() - start) / 1000000.0 / parses;
+
+		System.out.println("wave:            "+level.getFormationSize()+" ("+level.getCount(Level.ALIEN)+" aliens, "
+				+level.getCount(Level.ARMORED_ALIEN)+" armored, "+level.getCount(Level.RAPID_FIRE)+" rapid fire, "
+				+level.getCount(Level.SLOW_DOWN)+" slow down)");
+		System.out.println("first load:      "+String.format("%.3f",firstLoad / 1000000.0)+" ms");
+		System.out.println("parse:           "+String.format("%.3f",parse)+" ms");
+		System.out.println("cached + spawn:  "+String.format("%.3f",median)+" ms median, "
+				+String.format("%.3f",worst)+" ms worst over "+runs+" runs");
+		System.out.println("target:          "+(median < TARGET ? "met" : "missed")+" ("+TARGET+" ms)");
+		System.out.println();
+		System.out.println(game.getPoolStats());
+	}
+}
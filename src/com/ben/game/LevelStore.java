@@ -0,0 +1,116 @@
+package com.ben.game;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.HashMap;
+
+/**
+ * Loads the levels of the game and keeps them compiled. Each level is
+ * read from its text file the first time it is asked for and the
+ * compiled {@link Level} is cached from then on, so starting a level
+ * never parses anything.
+ * <p>
+ * The levels played, and the order they are played in, are listed in
+ * a manifest. A level that can't be loaded is reported and replaced by
+ * one that just shows the problem, so the game still runs.
+ * <p>
+ * [singleton]
+ */
+public class LevelStore {
+	/** The manifest listing the levels in the order they are played */
+	private static final String MANIFEST = "levels/levels.txt";
+
+	/** The single instance of this class */
+	private static LevelStore single = new LevelStore();
+
+	/**
+	 * Get the single instance of this class
+	 * 
+	 * @return The single instance of this class
+	 */
+	public static LevelStore get() {
+		return single;
+	}
+
+	/** The compiled levels, from name to level */
+	private HashMap levels = new HashMap();
+	/** The levels in the manifest in order, null until first asked for */
+	private Level[] played;
+
+	/**
+	 * Get the levels listed in the manifest, in the order they are played
+	 * 
+	 * @return The levels
+	 */
+	public synchronized Level[] getLevels() {
+		if (played == null) {
+			String[] refs;
+			try {
+				refs = SpriteLoader.readManifest(MANIFEST);
+			} catch (IOException e) {
+				System.err.println(e.getMessage());
+				refs = new String[0];
+			}
+			if (refs.length == 0) {
+				played = new Level[] {Level.placeholder(MANIFEST,"There are no levels to play!")};
+			} else {
+				played = new Level[refs.length];
+				for (int i=0;i<refs.length;i++) {
+					played[i] = getLevel(refs[i]);
+				}
+			}
+		}
+		return played.clone();
+	}
+
+	/**
+	 * Get a level, loading and compiling it if this is the first time
+	 * it has been asked for
+	 * 
+	 * @param ref The reference to the level's file
+	 * @return The compiled level
+	 */
+	public synchronized Level getLevel(String ref) {
+		Level level = (Level) levels.get(ref);
+		if (level != null) {
+			return level;
+		}
+		try {
+			InputStream in = LevelStore.class.getClassLoader().getResourceAsStream(ref);
+			if (in == null) {
+				throw new IOException("Can't find level: "+ref);
+			}
+			InputStreamReader reader = new InputStreamReader(in,"UTF-8");
+			try {
+				level = Level.compile(ref,reader);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			level = Level.placeholder(ref,"This level couldn't be loaded: "+e.getMessage());
+		}
+		levels.put(ref,level);
+		return level;
+	}
+
+	/**
+	 * Get a level given as text rather than a file, compiling it if
+	 * nothing has been cached under its name yet, e.g. a generated wave
+	 * 
+	 * @param name The name to cache the level under
+	 * @param text The text of the level
+	 * @return The compiled level
+	 * @throws IOException Indicates the text isn't a valid level
+	 */
+	public synchronized Level getLevel(String name,String text) throws IOException {
+		Level level = (Level) levels.get(name);
+		if (level == null) {
+			level = Level.compile(name,new StringReader(text));
+			levels.put(name,level);
+		}
+		return level;
+	}
+}
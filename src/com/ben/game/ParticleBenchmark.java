@@ -0,0 +1,77 @@
+package com.ben.game;
+
+import java.util.Random;
+
+/**
+ * Measures the particle system under load. The first level is played
+ * headless and drawn into an {@link ImageRenderTarget} while explosions
+ * are set off at random points every tick, enough to hold the system
+ * at its budget. The time to update the particles and the time to draw
+ * each frame are reported against the 16.7ms a frame has at 60 FPS,
+ * along with how many particles were live and how many the budget
+ * turned away.
+ * <p>
+ * Usage: ParticleBenchmark [frames] [budget] [sparks per tick]
+ */
+public class ParticleBenchmark {
+	/** The number of frames drawn before timing starts */
+	private static final int WARM_UP = 300;
+
+	/**
+	 * The entry point for the benchmark
+	 * 
+	 * @param argv The number of frames to time, the particle budget and the sparks set off each tick, all optional
+	 */
+	public static void main(String argv[]) {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		int frames = argv.length > 0 ? Integer.parseInt(argv[0]) : 1000;
+		int budget = argv.length > 1 ? Integer.parseInt(argv[1]) : ParticleSystem.DEFAULT_CAPACITY;
+		int sparks = argv.length > 2 ? Integer.parseInt(argv[2]) : budget / 40;
+		System.setProperty("invaders.particles",String.valueOf(budget));
+
+		HeadlessGame headless = new HeadlessGame();
+		Game game = headless.getGame();
+		game.setRenderTarget(new ImageRenderTarget(800,600));
+		game.getGameStateManager().SetStateNumber(1);
+		ParticleSystem particles = game.getParticles();
+		FrameProfiler profiler = game.getProfiler();
+		profiler.setEnabled(true);
+
+		Random random = new Random(1);
+		long updateTime = 0;
+		long drawTime = 0;
+		long worst = 0;
+		long live = 0;
+		long dropped = 0;
+		for (int i=0;i<WARM_UP + frames;i++) {
+			if (i == WARM_UP) {
+				dropped = particles.getDropped();
+			}
+			for (int burst=0;burst<sparks;burst+=200) {
+				particles.explode(random.nextInt(800),random.nextInt(600),Math.min(200,sparks - burst),0xFFB040);
+			}
+			long before = profiler.getTotal(FrameProfiler.PARTICLES);
+			headless.run(1,1000.0 / 60);
+			long update = profiler.getTotal(FrameProfiler.PARTICLES) - before;
+
+			long start = System.nanoTime();
+			game.drawFrame(1);
+			long draw = System.nanoTime() - start;
+			if (i >= WARM_UP) {
+				updateTime += update;
+				drawTime += draw;
+				worst = Math.max(worst,update + draw);
+				live += particles.getCount();
+			}
+		}
+
+		System.out.println("budget:        "+budget);
+		System.out.println("live (avg):    "+(live / frames));
+		System.out.println("dropped:       "+(particles.getDropped() - dropped));
+		System.out.println(String.format("update us:     %.1f",updateTime / 1000.0 / frames));
+		System.out.println(String.format("draw us:       %.1f",drawTime / 1000.0 / frames));
+		System.out.println(String.format("worst ms:      %.2f (%.1f available at 60 FPS)",worst / 1000000.0,1000.0 / 60));
+	}
+}
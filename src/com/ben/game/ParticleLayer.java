@@ -0,0 +1,75 @@
+package com.ben.game;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * The image particles are drawn into before going on screen. Drawing a
+ * hundred thousand particles through Graphics calls would cost a call
+ * each, so instead their colours are written straight into the image's
+ * pixel array in one loop, and the part of the image they cover is then
+ * copied to the back buffer in a single blit. Only the area covered by
+ * the particles is cleared and copied each frame.
+ */
+public class ParticleLayer {
+	/** The width of the layer, the width of the screen */
+	private static final int WIDTH = 800;
+	/** The height of the layer, the height of the screen */
+	private static final int HEIGHT = 600;
+
+	/** The image the particles are drawn into */
+	private BufferedImage image = new BufferedImage(WIDTH,HEIGHT,BufferedImage.TYPE_INT_ARGB);
+	/** The pixels of the image */
+	private int[] raster = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	/** The left of the area holding particles */
+	private int left;
+	/** The top of the area holding particles */
+	private int top;
+	/** One past the right of the area holding particles */
+	private int right;
+	/** One past the bottom of the area holding particles */
+	private int bottom;
+
+	/**
+	 * Clear the particles last drawn and draw those in a snapshot
+	 * 
+	 * @param snapshot The snapshot holding the particles
+	 */
+	public void rasterize(WorldSnapshot snapshot) {
+		for (int row=top;row<bottom;row++) {
+			Arrays.fill(raster,(row * WIDTH) + left,(row * WIDTH) + right,0);
+		}
+
+		int[] pixels = snapshot.particlePixels;
+		int[] colors = snapshot.particleColors;
+		for (int i=0;i<snapshot.particleCount;i++) {
+			raster[pixels[i]] = colors[i];
+		}
+		left = snapshot.particleMinX;
+		top = snapshot.particleMinY;
+		right = snapshot.particleMaxX;
+		bottom = snapshot.particleMaxY;
+	}
+
+	/**
+	 * Draw the part of the layer inside a rectangle
+	 * 
+	 * @param g The graphics context on which to draw
+	 * @param x The left of the rectangle
+	 * @param y The top of the rectangle
+	 * @param width The width of the rectangle
+	 * @param height The height of the rectangle
+	 */
+	public void draw(Graphics g,int x,int y,int width,int height) {
+		int x0 = Math.max(x,left);
+		int y0 = Math.max(y,top);
+		int x1 = Math.min(x + width,right);
+		int y1 = Math.min(y + height,bottom);
+		if (x0 >= x1 || y0 >= y1) {
+			return;
+		}
+		g.drawImage(image,x0,y0,x1,y1,x0,y0,x1,y1,null);
+	}
+}
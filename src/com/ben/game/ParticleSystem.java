@@ -0,0 +1,335 @@
+package com.ben.game;
+
+/**
+ * The sparks, shards and trails drawn over the game. Particles are
+ * purely for show, they don't collide or affect play, so rather than
+ * being entities they live in a fixed set of primitive arrays sized
+ * up front: position, velocity, remaining life and colour. Spawning a
+ * particle fills in the next free index and a dead particle is
+ * replaced by the last live one, so the live particles are always
+ * packed at the start of the arrays and nothing is allocated however
+ * many come and go.
+ * <p>
+ * Each tick one loop ages, moves and culls every particle and works
+ * out the pixel and faded colour it will be drawn with, so drawing a
+ * frame is just writing those colours into a raster (see
+ * {@link SnapshotRenderer#drawParticles(java.awt.Graphics2D,int,int,int,int)}).
+ * <p>
+ * The arrays are a hard budget. Once they are three quarters full
+ * bursts are thinned out in proportion to the room left, trails stop
+ * above half full, and anything that still doesn't fit is dropped and
+ * counted. A busy screen gets sparser rather than slower.
+ */
+public class ParticleSystem {
+	/** The default number of particles that can be alive at once */
+	public static final int DEFAULT_CAPACITY = 100000;
+	/** The width of the screen, particles leaving it die */
+	private static final int WIDTH = 800;
+	/** The height of the screen, particles leaving it die */
+	private static final int HEIGHT = 600;
+	/** The time over which a particle fades out at the end of its life (secs) */
+	private static final float FADE = 0.25f;
+	/** The downward acceleration of armor shards (pixels/sec/sec) */
+	private static final float GRAVITY = 400;
+
+	/** The x location of each particle */
+	private float[] x;
+	/** The y location of each particle */
+	private float[] y;
+	/** The horizontal speed of each particle (pixels/sec) */
+	private float[] vx;
+	/** The vertical speed of each particle (pixels/sec) */
+	private float[] vy;
+	/** The downward acceleration of each particle (pixels/sec/sec) */
+	private float[] gravity;
+	/** The time each particle has left to live (secs) */
+	private float[] life;
+	/** The colour of each particle (RGB) */
+	private int[] color;
+	/** The index of the screen pixel each particle covers after the last update */
+	int[] pixel;
+	/** The colour each particle is drawn in after the last update, faded as it dies */
+	int[] shade;
+	/** The number of live particles */
+	int count;
+	/** The left of the area covered by live particles */
+	int minX;
+	/** The top of the area covered by live particles */
+	int minY;
+	/** One past the right of the area covered by live particles */
+	int maxX;
+	/** One past the bottom of the area covered by live particles */
+	int maxY;
+	/** The number of updates so far, so a renderer can tell the particles have moved */
+	long updates;
+	/** The state of the random number generator, fixed so runs repeat exactly */
+	private int seed = 0x2545F491;
+	/** The number of particles spawned */
+	private long spawned;
+	/** The number of particles that didn't fit in the budget */
+	private long dropped;
+
+	/**
+	 * Create a new particle system
+	 * 
+	 * @param capacity The most particles that can be alive at once
+	 */
+	public ParticleSystem(int capacity) {
+		x = new float[capacity];
+		y = new float[capacity];
+		vx = new float[capacity];
+		vy = new float[capacity];
+		gravity = new float[capacity];
+		life = new float[capacity];
+		color = new int[capacity];
+		pixel = new int[capacity];
+		shade = new int[capacity];
+	}
+
+	/**
+	 * Throw out a ring of sparks, e.g. where an alien was killed
+	 * 
+	 * @param cx The x location of the centre of the explosion
+	 * @param cy The y location of the centre of the explosion
+	 * @param particles The number of sparks wanted
+	 * @param rgb The colour of the sparks
+	 */
+	public void explode(double cx,double cy,int particles,int rgb) {
+		int n = thin(particles);
+		for (int i=0;i<n;i++) {
+			// pick a point in the unit circle, so the sparks spread
+
+			// evenly rather than bunching along the axes
+
+			float dx;
+			float dy;
+			do {
+				dx = (nextFloat() * 2) - 1;
+				dy = (nextFloat() * 2) - 1;
+			} while ((dx * dx) + (dy * dy) > 1);
+			float speed = 60 + (nextFloat() * 180);
+			spawn((float) cx,(float) cy,dx * speed,dy * speed,0,0.3f + (nextFloat() * 0.5f),rgb);
+		}
+	}
+
+	/**
+	 * Break an area into shards that fly up and out then fall away,
+	 * e.g. where an alien's armor was knocked off
+	 * 
+	 * @param left The left of the area
+	 * @param top The top of the area
+	 * @param width The width of the area
+	 * @param height The height of the area
+	 * @param particles The number of shards wanted
+	 * @param rgb The colour of the shards
+	 */
+	public void shatter(double left,double top,int width,int height,int particles,int rgb) {
+		int n = thin(particles);
+		for (int i=0;i<n;i++) {
+			float px = (float) left + (nextFloat() * width);
+			float py = (float) top + (nextFloat() * height);
+			float dx = (px - (float) (left + (width / 2.0))) * 4;
+			spawn(px,py,dx + ((nextFloat() - 0.5f) * 60),-40 - (nextFloat() * 80),GRAVITY,0.5f + (nextFloat() * 0.4f),rgb);
+		}
+	}
+
+	/**
+	 * Leave a single short lived particle behind something moving, e.g.
+	 * a shot. Trails are the first thing to go when the budget is tight.
+	 * 
+	 * @param px The x location of the particle
+	 * @param py The y location of the particle
+	 * @param rgb The colour of the particle
+	 */
+	public void trail(double px,double py,int rgb) {
+		if (count >= x.length / 2) {
+			dropped++;
+			return;
+		}
+		spawn((float) px,(float) py,(nextFloat() - 0.5f) * 20,(nextFloat() - 0.5f) * 20,0,0.15f + (nextFloat() * 0.1f),rgb);
+	}
+
+	/**
+	 * Leave a trail behind every shot in the game
+	 * 
+	 * @param store The store holding the shots
+	 * @param rgb The colour of the trails
+	 */
+	public void trailShots(EntityStore store,int rgb) {
+		int slots = store.getHighWater();
+		for (int i=0;i<slots;i++) {
+			if ((store.flags[i] & EntityStore.FLAG_IN_GAME) != 0 && store.type[i] == Entity.TYPE_SHOT) {
+				Sprite sprite = store.sprite[i];
+				trail(store.x[i] + (sprite.getWidth() / 2),store.y[i] + sprite.getHeight(),rgb);
+			}
+		}
+	}
+
+	/**
+	 * Work out how many particles of a burst fit in the budget. Above
+	 * three quarters full bursts shrink in proportion to the room left.
+	 * 
+	 * @param wanted The number of particles wanted
+	 * @return The number to spawn
+	 */
+	private int thin(int wanted) {
+		int capacity = x.length;
+		int soft = capacity - (capacity / 4);
+		int n = wanted;
+		if (count > soft) {
+			n = (int) ((long) wanted * (capacity - count) / (capacity - soft));
+		}
+		n = Math.min(n,capacity - count);
+		dropped += wanted - n;
+		return n;
+	}
+
+	/**
+	 * Start a new particle, if there is room for it
+	 * 
+	 * @param px The x location of the particle
+	 * @param py The y location of the particle
+	 * @param dx The horizontal speed of the particle (pixels/sec)
+	 * @param dy The vertical speed of the particle (pixels/sec)
+	 * @param g The downward acceleration of the particle (pixels/sec/sec)
+	 * @param seconds How long the particle lives
+	 * @param rgb The colour of the particle
+	 */
+	private void spawn(float px,float py,float dx,float dy,float g,float seconds,int rgb) {
+		if (count == x.length) {
+			dropped++;
+			return;
+		}
+		int i = count++;
+		x[i] = px;
+		y[i] = py;
+		vx[i] = dx;
+		vy[i] = dy;
+		gravity[i] = g;
+		life[i] = seconds;
+		color[i] = rgb;
+		spawned++;
+	}
+
+	/**
+	 * Age and move every particle, removing those that have died or
+	 * left the screen, and work out where and in what colour each of
+	 * the rest will be drawn
+	 * 
+	 * @param delta The ammount of time that has passed in milliseconds
+	 */
+	public void update(double delta) {
+		float seconds = (float) (delta / 1000);
+		int left = WIDTH;
+		int top = HEIGHT;
+		int right = 0;
+		int bottom = 0;
+		int i = 0;
+		while (i < count) {
+			float remaining = life[i] - seconds;
+			float dy = vy[i] + (gravity[i] * seconds);
+			float px = x[i] + (vx[i] * seconds);
+			float py = y[i] + (dy * seconds);
+			if (remaining <= 0 || px < 0 || px >= WIDTH || py < 0 || py >= HEIGHT) {
+				// replace the dead particle with the last live one and
+
+				// look at this index again
+
+				int last = --count;
+				x[i] = x[last];
+				y[i] = y[last];
+				vx[i] = vx[last];
+				vy[i] = vy[last];
+				gravity[i] = gravity[last];
+				life[i] = life[last];
+				color[i] = color[last];
+				continue;
+			}
+			life[i] = remaining;
+			vy[i] = dy;
+			x[i] = px;
+			y[i] = py;
+
+			int ix = (int) px;
+			int iy = (int) py;
+			pixel[i] = (iy * WIDTH) + ix;
+			int rgb = color[i];
+			if (remaining < FADE) {
+				int level = (int) (remaining * (256 / FADE));
+				rgb = (((rgb & 0xFF00FF) * level >>> 8) & 0xFF00FF) | (((rgb & 0x00FF00) * level >>> 8) & 0x00FF00);
+			}
+			shade[i] = 0xFF000000 | rgb;
+
+			left = Math.min(left,ix);
+			top = Math.min(top,iy);
+			right = Math.max(right,ix + 1);
+			bottom = Math.max(bottom,iy + 1);
+			i++;
+		}
+		minX = left;
+		minY = top;
+		maxX = right;
+		maxY = bottom;
+		updates++;
+	}
+
+	/**
+	 * Remove every particle, e.g. when a new level starts
+	 */
+	public void clear() {
+		count = 0;
+		minX = WIDTH;
+		minY = HEIGHT;
+		maxX = 0;
+		maxY = 0;
+		updates++;
+	}
+
+	/**
+	 * Get the next random number from the generator
+	 * 
+	 * @return A number between 0 (inclusive) and 1 (exclusive)
+	 */
+	private float nextFloat() {
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		return (seed >>> 8) * (1.0f / (1 << 24));
+	}
+
+	/**
+	 * Get the number of live particles
+	 * 
+	 * @return The number of particles
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the most particles that can be alive at once
+	 * 
+	 * @return The capacity
+	 */
+	public int getCapacity() {
+		return x.length;
+	}
+
+	/**
+	 * Get the number of particles spawned so far
+	 * 
+	 * @return The number of particles
+	 */
+	public long getSpawned() {
+		return spawned;
+	}
+
+	/**
+	 * Get the number of particles left out because the budget was full
+	 * 
+	 * @return The number of particles
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+}
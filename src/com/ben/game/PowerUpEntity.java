@@ -6,36 +6,30 @@ public class PowerUpEntity extends Entity {
 	private double moveSpeed = 75;
 	
 	public PowerUpEntity(Game game,String ref, int x, int y) {
-		super(ref, x, y);
-		dx = -moveSpeed;
+		super(game, ref, x, y);
+		this.game = game;
+		setHorizontalMovement(-moveSpeed);
+		setTypeId(TYPE_POWER_UP);
+		// ask for a logic update when we reach the side of the screen
+
+		addFlags(EntityStore.FLAG_EDGE_TRIGGER);
+		collisionLayer = LAYER_POWER_UP;
+		collisionMask = LAYER_SHOT;
 	}
 
 	/**
-	 * Request that this alien moved based on time elapsed
+	 * Reuse this power up for a new level
 	 * 
-	 * @param delta The time that has elapsed since last move
+	 * @param sprite The handle of the sprite to show
+	 * @param x The intial x location
+	 * @param y The intial y location
 	 */
-	public void move(long delta) {
-		// if we have reached the left hand side of the screen and
-
-		// are moving left then request a logic update 
-
-		if ((dx < 0) && (x < 10)) {
-			game.updateLogic();
-		}
-		// and vice vesa, if we have reached the right hand side of 
-
-		// the screen and are moving right, request a logic update
-
-		if ((dx > 0) && (x > 750)) {
-			game.updateLogic();
-		}
-		
-		// proceed with normal move
-
-		super.move(delta);
+	void reset(int sprite,int x,int y) {
+		setSprite(SpriteStore.get().getSprite(sprite));
+		place(x,y);
+		setHorizontalMovement(-moveSpeed);
 	}
-	
+
 	public void setMoveSpeed(int i) {
 		moveSpeed = i;
 	}
@@ -48,20 +42,16 @@ public class PowerUpEntity extends Entity {
 
 		// screen a bit
 
-		dx = -dx;
-		y += 10;
+		setHorizontalMovement(-getHorizontalMovement());
+		translate(0,10);
 		
 		// if we've reached the bottom of the screen then the player
 
 		// dies
 
-		if (y > 570) {
+		if (getExactY() > 570) {
 			game.notifyDeath();
 		}
 	}
-	@Override
-	public void collidedWith(Entity other) {
-
-	}
 
 }
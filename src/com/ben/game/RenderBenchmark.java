@@ -0,0 +1,95 @@
+package com.ben.game;
+
+import java.util.Random;
+
+/**
+ * Measures how fast frames can be drawn. The first level is played
+ * headless with a number of extra aliens scattered through the formation,
+ * and each tick is drawn into an {@link ImageRenderTarget} with whole
+ * frames and then with the dirty region renderer. Only drawing is
+ * timed, the ticks in between are not, so the results are the frame
+ * rate the software pipeline could reach at that many entities.
+ * <p>
+ * Usage: RenderBenchmark [frames per run] [entity counts...]
+ */
+public class RenderBenchmark {
+	/** The number of extra aliens to draw if none are given */
+	private static final int[] DEFAULT_ENTITIES = {0,100,1000,5000};
+	/** The number of formation columns the extra aliens are spread over */
+	private static final int COLUMNS = 12;
+	/** The number of formation rows the extra aliens are spread over */
+	private static final int ROWS = 10;
+	/** The number of frames drawn before timing starts */
+	private static final int WARM_UP = 200;
+
+	/**
+	 * Play one run and print a line of results
+	 * 
+	 * @param extraAliens The number of extra aliens to scatter over the playfield
+	 * @param dirtyRegions True to use the dirty region renderer
+	 * @param frames The number of frames to time
+	 */
+	private static void run(int extraAliens,boolean dirtyRegions,int frames) {
+		HeadlessGame headless = new HeadlessGame();
+		Game game = headless.getGame();
+		game.setRenderTarget(new ImageRenderTarget(800,600));
+		game.setDirtyRegionRendering(dirtyRegions);
+		game.getGameStateManager().SetStateNumber(1);
+
+		// the extra aliens join the formation, scattered around its
+
+		// grid, so they sweep across the screen with the rest of the
+
+		// block rather than reaching the player and ending the level
+
+		Random random = new Random(1);
+		int sprite = SpriteStore.get().getHandle("sprites/alien.gif");
+		for (int i=0;i<extraAliens;i++) {
+			int column = random.nextInt(COLUMNS);
+			int row = random.nextInt(ROWS);
+			Entity alien = game.createAlien(sprite,100 + (column * 50) + random.nextInt(31) - 15,
+					50 + (row * 30) + random.nextInt(31) - 15);
+			game.addFormationEntity(alien,column,row);
+		}
+
+		for (int i=0;i<WARM_UP;i++) {
+			headless.run(1,10);
+			game.drawFrame(1);
+		}
+		long elapsed = 0;
+		for (int i=0;i<frames;i++) {
+			headless.run(1,10);
+			long start = System.nanoTime();
+			game.drawFrame(1);
+			elapsed += System.nanoTime() - start;
+		}
+
+		System.out.println(String.format("%8d %-6s %10d %10.1f %10.1f", extraAliens, dirtyRegions ? "dirty" : "full",
+				game.getEntityCounts().getTotal(), elapsed / 1000.0 / frames, frames / (elapsed / 1000000000.0)));
+	}
+
+	/**
+	 * The entry point for the benchmark
+	 * 
+	 * @param argv The number of frames per run followed by the entity counts to try, all optional
+	 */
+	public static void main(String argv[]) {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		int frames = argv.length > 0 ? Integer.parseInt(argv[0]) : 1000;
+		int[] entities = DEFAULT_ENTITIES;
+		if (argv.length > 1) {
+			entities = new int[argv.length - 1];
+			for (int i=1;i<argv.length;i++) {
+				entities[i - 1] = Integer.parseInt(argv[i]);
+			}
+		}
+
+		System.out.println("  extra  mode     entities   draw us  frames/sec");
+		for (int i=0;i<entities.length;i++) {
+			run(entities[i],false,frames);
+			run(entities[i],true,frames);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.ben.game;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+
+/**
+ * Somewhere frames of the game are drawn to. On screen this is the
+ * canvas's buffer strategy, but frames can equally be drawn into an
+ * image in memory, which lets rendering be checked and benchmarked on
+ * machines without a display. The game draws exactly the same way
+ * whichever target is used.
+ */
+public interface RenderTarget {
+	/**
+	 * Get a graphics context to draw the next frame with. The caller
+	 * disposes of it when the frame is drawn.
+	 * 
+	 * @return The graphics context of the back buffer
+	 */
+	public Graphics2D getDrawGraphics();
+
+	/**
+	 * Make the frame that has been drawn visible
+	 */
+	public void show();
+
+	/**
+	 * Check if the back buffer lost its contents when the last frame
+	 * was shown
+	 * 
+	 * @return True if the contents were lost
+	 */
+	public boolean contentsLost();
+
+	/**
+	 * Check if the back buffer keeps an earlier frame after being
+	 * shown, so that only the parts that changed need drawing again
+	 * 
+	 * @return True if earlier frames are kept
+	 */
+	public boolean isBackBufferPreserved();
+
+	/**
+	 * Get the configuration of the screen being drawn to
+	 * 
+	 * @return The configuration, or null if there is no screen
+	 */
+	public GraphicsConfiguration getGraphicsConfiguration();
+}
@@ -0,0 +1,148 @@
+package com.ben.game;
+
+/**
+ * A histogram of the most recent samples of a timing, used by the
+ * frame profiler. Samples are kept in a fixed size ring and counted
+ * into log-linear buckets (16 buckets per power of two, so any value
+ * is reported to within about 6%). Adding a sample removes the oldest
+ * one from its bucket, so the percentiles always describe the last
+ * window of frames. Nothing is allocated after construction.
+ */
+public class RollingHistogram {
+	/** The number of linear sub-buckets per power of two */
+	private static final int SUB_BUCKETS = 16;
+	/** The highest power of two we track, larger values are clamped */
+	private static final int MAX_EXPONENT = 40;
+	/** The total number of buckets */
+	private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - 3) * SUB_BUCKETS;
+
+	/** The most recent samples, oldest overwritten first */
+	private final long[] window;
+	/** The number of samples in the window falling in each bucket */
+	private final int[] counts = new int[BUCKETS];
+	/** The next slot in the window to write */
+	private int next;
+	/** The number of samples held, up to the window size */
+	private int size;
+
+	/**
+	 * Create a new histogram
+	 * 
+	 * @param windowSize The number of recent samples to describe
+	 */
+	public RollingHistogram(int windowSize) {
+		window = new long[windowSize];
+	}
+
+	/**
+	 * Add a sample, dropping the oldest one if the window is full
+	 * 
+	 * @param value The sample to add, must not be negative
+	 */
+	public void add(long value) {
+		if (size == window.length) {
+			counts[bucket(window[next])]--;
+		} else {
+			size++;
+		}
+		window[next] = value;
+		counts[bucket(value)]++;
+		next++;
+		if (next == window.length) {
+			next = 0;
+		}
+	}
+
+	/**
+	 * Get the value below which the given fraction of the samples fall
+	 * 
+	 * @param fraction The percentile as a fraction (e.g. 0.95)
+	 * @return The approximate percentile (never more than the maximum), or 0 if there are no samples
+	 */
+	public long percentile(double fraction) {
+		if (size == 0) {
+			return 0;
+		}
+		int target = (int) Math.ceil(fraction * size);
+		if (target < 1) {
+			target = 1;
+		}
+		int seen = 0;
+		for (int i=0;i<BUCKETS;i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.min(bucketValue(i), max());
+			}
+		}
+		return max();
+	}
+
+	/**
+	 * Get the largest sample in the window
+	 * 
+	 * @return The largest sample, or 0 if there are no samples
+	 */
+	public long max() {
+		long max = 0;
+		for (int i=0;i<size;i++) {
+			if (window[i] > max) {
+				max = window[i];
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Get the number of samples in the window
+	 * 
+	 * @return The number of samples
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Forget all the samples
+	 */
+	public void clear() {
+		for (int i=0;i<BUCKETS;i++) {
+			counts[i] = 0;
+		}
+		next = 0;
+		size = 0;
+	}
+
+	/**
+	 * Work out which bucket a value falls in
+	 * 
+	 * @param value The value
+	 * @return The bucket index
+	 */
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+		int sub = (int) (value >> (exponent - 4)) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + (exponent - 4) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Get the value at the middle of a bucket
+	 * 
+	 * @param bucket The bucket index
+	 * @return The value the bucket represents
+	 */
+	private static long bucketValue(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + 4;
+		int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		long low = (long) (SUB_BUCKETS + sub) << (exponent - 4);
+		return low + ((1L << (exponent - 4)) >> 1);
+	}
+}
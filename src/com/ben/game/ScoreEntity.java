@@ -6,27 +6,26 @@ public class ScoreEntity extends Entity {
 	private int moveSpeed = 200;
 	
 	public ScoreEntity(Game game, String ref, int x, int y) {
-		super(ref, x, y);
+		super(game, ref, x, y);
 		this.game = game;
 		
-		dy = -moveSpeed;
-	}
-	
-	public void move(long delta) {
-		// proceed with normal move
-
-		super.move(delta);
-		
-		// if we shot off the screen, remove ourselves
+		setVerticalMovement(-moveSpeed);
+		setTypeId(TYPE_SCORE);
+		// once we float off the top of the screen, remove ourselves
 
-		if (y < -100) {
-			game.removeEntity(this);
-		}
+		addFlags(EntityStore.FLAG_CULL_ABOVE);
 	}
-
-	@Override
-	public void collidedWith(Entity other) {
-		
+	
+	/**
+	 * Reuse this popup for a new score
+	 * 
+	 * @param sprite The handle of the sprite to show
+	 * @param x The initial x location
+	 * @param y The initial y location
+	 */
+	void reset(int sprite,int x,int y) {
+		setSprite(SpriteStore.get().getSprite(sprite));
+		place(x,y);
 	}
 
 }
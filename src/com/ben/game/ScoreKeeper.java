@@ -13,32 +13,39 @@ public class ScoreKeeper {
 	private int alienCount = 0;
 	private int totalCount = 0;
 
+	/** The handles of the score popup sprites, looked up once */
+	private int oneHundredSprite;
+	private int fiftySprite;
+	private int rapidFireScoreSprite;
+	private int slowDownScoreSprite;
+
 	public ScoreKeeper(Game game){
 		this.game = game;
+		SpriteStore sprites = SpriteStore.get();
+		oneHundredSprite = sprites.getHandle("sprites/oneHundred.gif");
+		fiftySprite = sprites.getHandle("sprites/fifty.gif");
+		rapidFireScoreSprite = sprites.getHandle("sprites/rapidFireScore.gif");
+		slowDownScoreSprite = sprites.getHandle("sprites/slowDownScore.gif");
 	}
 
 	public void Score(Entity e) {
 		if (e instanceof ArmoredAlienEntity) {
 			totalPoints += armoredAlienPoints;
 			armoredAlienCount++;
-			ScoreEntity score = new ScoreEntity(game,"sprites/oneHundred.gif",e.getX(),e.getY()-30);
-			game.entities.add(score);
+			game.addEntity(game.createScore(oneHundredSprite,e.getX(),e.getY()-30));
 		}else if(e instanceof AlienEntity) {
 			totalPoints += alienPoints;
 			alienCount++;
-			ScoreEntity score = new ScoreEntity(game,"sprites/fifty.gif",e.getX(),e.getY()-30);
-			game.entities.add(score);
+			game.addEntity(game.createScore(fiftySprite,e.getX(),e.getY()-30));
 		}
 
 		if (e instanceof RapidFireEntity){
 			totalPoints += alienPoints;
-			ScoreEntity rapid = new ScoreEntity(game, "sprites/rapidFireScore.gif",e.getX(),e.getY()-30);
-			game.entities.add(rapid);
+			game.addEntity(game.createScore(rapidFireScoreSprite,e.getX(),e.getY()-30));
 		}
 		else if (e instanceof SlowDownEntity) {
 			totalPoints += alienPoints;
-			ScoreEntity slow = new ScoreEntity(game, "sprites/slowDownScore.gif",e.getX(),e.getY()-30);
-			game.entities.add(slow);
+			game.addEntity(game.createScore(slowDownScoreSprite,e.getX(),e.getY()-30));
 		}
 		totalCount = alienCount + fastAlienCount + armoredAlienCount;
 
@@ -20,13 +20,32 @@ public class ShipEntity extends Entity {
 	 * @param y The initial y location of the player's ship
 	 */
 	public ShipEntity(Game game,String ref,int x,int y, boolean isCoShip) {
-		super(ref,x,y);
+		this(game,SpriteStore.get().getHandle(ref),x,y,isCoShip);
+	}
+
+	/**
+	 * Create a new entity to represent the players ship from a sprite
+	 * that has already been resolved to a handle
+	 *  
+	 * @param game The game in which the ship is being created
+	 * @param sprite The handle of the sprite to show for the ship
+	 * @param x The initial x location of the player's ship
+	 * @param y The initial y location of the player's ship
+	 * @param isCoShip True if this is the second ship, flying alongside the first
+	 */
+	public ShipEntity(Game game,int sprite,int x,int y, boolean isCoShip) {
+		super(game,sprite,x,y);
 		this.isCoShip = isCoShip;
 		if (isCoShip){
 			game.hasCoShip = true;
 		}
 		coShipOffset = game.shipSpread;
 		this.game = game;
+		setTypeId(TYPE_SHIP);
+		// the ship keeps itself on screen so moves itself
+		addFlags(EntityStore.FLAG_CUSTOM_MOVE);
+		collisionLayer = LAYER_SHIP;
+		collisionMask = LAYER_ALIEN;
 	}
 
 	/**
@@ -35,7 +54,9 @@ public class ShipEntity extends Entity {
 	 * 
 	 * @param delta The time that has elapsed since last move (ms)
 	 */
-	public void move(long delta) {
+	public void move(double delta) {
+		double x = getExactX();
+		double dx = getHorizontalMovement();
 
 		if (!isCoShip && game.hasCoShip){
 			if ((dx < 0 ) && (x < 10 + coShipOffset )) {
@@ -82,18 +103,11 @@ public class ShipEntity extends Entity {
 	}
 
 	/**
-	 * Notification that the player's ship has collided with something
-	 * 
-	 * @param other The entity with which the ship has collided
+	 * Notification that the player's ship has collided with an alien,
+	 * which is the end of the player
 	 */
-	public void collidedWith(Entity other) {
-		// if its an alien, notify the game that the player
-
-		// is dead
-
-		if (other instanceof AlienEntity) {
-			game.notifyDeath();
-		}
+	public void hitAlien() {
+		game.notifyDeath();
 	}
 }
 
@@ -23,37 +23,40 @@ public class ShotEntity extends Entity {
 	 * @param y The initial y location of the shot
 	 */
 	public ShotEntity(Game game,String sprite,int x,int y,double shotSpeed) {
-		super(sprite,x,y);
+		super(game,sprite,x,y);
 		moveSpeed = -shotSpeed;
 		this.game = game;
 
-		dy = moveSpeed;
+		setVerticalMovement(moveSpeed);
+		setTypeId(TYPE_SHOT);
+		// if we shot off the screen, remove ourselfs
+
+		addFlags(EntityStore.FLAG_CULL_ABOVE);
+		collisionLayer = LAYER_SHOT;
+		collisionMask = LAYER_ALIEN | LAYER_POWER_UP;
 	}
 
 	/**
-	 * Request that this shot moved based on time elapsed
+	 * Reuse this shot for a new firing
 	 * 
-	 * @param delta The time that has elapsed since last move
+	 * @param x The initial x location of the shot
+	 * @param y The initial y location of the shot
+	 * @param shotSpeed The speed the shot travels up the screen
 	 */
-	public void move(long delta) {
-		// proceed with normal move
-
-		super.move(delta);
-
-		// if we shot off the screen, remove ourselfs
-
-		if (y < -100) {
-			game.removeEntity(this);
-		}
+	void reset(int x,int y,double shotSpeed) {
+		place(x,y);
+		moveSpeed = -shotSpeed;
+		setVerticalMovement(moveSpeed);
+		used = false;
 	}
 
 	/**
-	 * Notification that this shot has collided with another
-	 * entity
+	 * Notification that this shot has hit an armored alien. The first
+	 * hit knocks its armor off, the second kills it.
 	 * 
-	 * @parma other The other entity with which we've collided
+	 * @param other The alien that was hit
 	 */
-	public void collidedWith(Entity other) {
+	public void hitArmoredAlien(ArmoredAlienEntity other) {
 		// prevents double kills, if we've already hit something,
 
 		// don't collide
@@ -62,42 +65,53 @@ public class ShotEntity extends Entity {
 			return;
 		}
 
-		// if we've hit an alien, kill it!
-
-		/*check if is armored alien
-		 *need to check if armor is applied still 
-		 *before removing it
-		 */
-		if (other instanceof ArmoredAlienEntity) {
-			game.removeEntity(this);
-			if (((ArmoredAlienEntity) other).ArmorStatus()) {
-				((ArmoredAlienEntity) other).BreakArmor();
-			}else {
-				game.removeEntity(other);
-				game.removeEntity(this);
-				// notify the game that the alien has been killed
-
-				game.notifyAlienKilled(other);
-				used = true;
-			}
-		}else if (other instanceof AlienEntity) {
-			// remove the affected entities
-
+		game.removeEntity(this);
+		if (other.ArmorStatus()) {
+			other.BreakArmor();
+		}else {
 			game.removeEntity(other);
-
-			game.removeEntity(this);
 			// notify the game that the alien has been killed
 
 			game.notifyAlienKilled(other);
 			used = true;
-		}else if (other instanceof PowerUpEntity) {
-			game.removeEntity(other);
+		}
+	}
+
+	/**
+	 * Notification that this shot has hit an alien, kill it!
+	 * 
+	 * @param other The alien that was hit
+	 */
+	public void hitAlien(AlienEntity other) {
+		if (used) {
+			return;
+		}
+
+		// remove the affected entities
+
+		game.removeEntity(other);
 
-			game.removeEntity(this);
-			game.notifyPowerUp(other);
+		game.removeEntity(this);
+		// notify the game that the alien has been killed
+
+		game.notifyAlienKilled(other);
+		used = true;
+	}
+
+	/**
+	 * Notification that this shot has hit a power up
+	 * 
+	 * @param other The power up that was hit
+	 */
+	public void hitPowerUp(PowerUpEntity other) {
+		if (used) {
+			return;
 		}
 
+		game.removeEntity(other);
 
+		game.removeEntity(this);
+		game.notifyPowerUp(other);
 	}
 
 }
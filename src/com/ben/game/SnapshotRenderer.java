@@ -0,0 +1,144 @@
+package com.ben.game;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+/**
+ * Draws {@link WorldSnapshot}s. The renderer keeps the images the HUD
+ * and dialogue text are drawn from between frames, so text that hasn't
+ * changed isn't laid out again, and the layer particles are drawn into.
+ * Snapshots only hold what to draw, and any number of them can be drawn
+ * by the same renderer.
+ * <p>
+ * A renderer is only used by one thread at a time, the one drawing the
+ * frames of the game it belongs to, so games and snapshots never share
+ * what it has cached.
+ */
+public class SnapshotRenderer {
+	/** The prompt shown below every dialogue message */
+	private static final String PROMPT = "Press the up arrow to continue";
+
+	/** The lines of text as last drawn, null until some text is first drawn */
+	private TextImage scoreImage,killedImage,aliensImage,messageImage,promptImage;
+	/** The image particles are drawn into, null until there are first some to draw */
+	private ParticleLayer particleLayer;
+
+	/**
+	 * Draw a whole frame
+	 * 
+	 * @param g The graphics context on which to draw
+	 * @param snapshot The snapshot to draw
+	 * @param alpha How far between the start and end of the tick to draw entities (0..1)
+	 */
+	public void draw(Graphics2D g,WorldSnapshot snapshot,double alpha) {
+		g.setColor(Color.black);
+		g.fillRect(0,0,800,600);
+
+		drawHud(g,snapshot);
+
+		// cycle round drawing all the entities we have in the game
+
+		for (int i=0;i<snapshot.count;i++) {
+			snapshot.sprites[i].draw(g,snapshot.getDrawX(i,alpha),snapshot.getDrawY(i,alpha));
+		}
+		rasterizeParticles(snapshot);
+		drawParticles(g,0,0,800,600);
+
+		// if we're waiting for an "any key" press then draw the
+		// current message
+
+		if (snapshot.waitingForKeyPress) {
+			drawMessage(g,snapshot);
+		}
+	}
+
+	/**
+	 * Create the images the lines of text are drawn from, the first
+	 * time any text is drawn
+	 */
+	private void createTextImages() {
+		if (scoreImage != null) {
+			return;
+		}
+		GlyphCache glyphs = GlyphCache.get();
+		scoreImage = new TextImage(glyphs);
+		killedImage = new TextImage(glyphs);
+		aliensImage = new TextImage(glyphs);
+		messageImage = new TextImage(glyphs);
+		promptImage = new TextImage(glyphs);
+		promptImage.setText(PROMPT);
+	}
+
+	/**
+	 * Draw the HUD lines in the top left corner of the screen
+	 * 
+	 * @param g The graphics context on which to draw
+	 * @param snapshot The snapshot holding the HUD values
+	 */
+	void drawHud(Graphics2D g,WorldSnapshot snapshot) {
+		createTextImages();
+		scoreImage.setText(snapshot.score.chars(),0,snapshot.score.length());
+		killedImage.setText(snapshot.killed.chars(),0,snapshot.killed.length());
+		aliensImage.setText(snapshot.aliens.chars(),0,snapshot.aliens.length());
+		scoreImage.draw(g,15,15);
+		killedImage.draw(g,15,30);
+		aliensImage.draw(g,15,45);
+	}
+
+	/**
+	 * Draw a snapshot's particles into the particle layer, ready to be
+	 * copied to the screen by {@link #drawParticles(Graphics2D,int,int,int,int)}
+	 * 
+	 * @param snapshot The snapshot holding the particles
+	 */
+	void rasterizeParticles(WorldSnapshot snapshot) {
+		if (particleLayer == null) {
+			if (snapshot.particleCount == 0) {
+				return;
+			}
+			particleLayer = new ParticleLayer();
+		}
+		particleLayer.rasterize(snapshot);
+	}
+
+	/**
+	 * Draw the part of the particle layer inside a rectangle
+	 * 
+	 * @param g The graphics context on which to draw
+	 * @param x The left of the rectangle
+	 * @param y The top of the rectangle
+	 * @param width The width of the rectangle
+	 * @param height The height of the rectangle
+	 */
+	void drawParticles(Graphics2D g,int x,int y,int width,int height) {
+		if (particleLayer != null) {
+			particleLayer.draw(g,x,y,width,height);
+		}
+	}
+
+	/**
+	 * Draw the dialogue message and the prompt to continue
+	 * 
+	 * @param g The graphics context on which to draw
+	 * @param snapshot The snapshot holding the message
+	 */
+	void drawMessage(Graphics2D g,WorldSnapshot snapshot) {
+		createTextImages();
+		messageImage.setText(snapshot.message);
+		messageImage.draw(g,(800 - messageImage.getWidth()) / 2,400);
+		promptImage.draw(g,(800 - promptImage.getWidth()) / 2,450);
+	}
+
+	/**
+	 * Draw the profiler's overlay as it was when the snapshot was
+	 * captured, if it was showing
+	 * 
+	 * @param g The graphics context on which to draw
+	 * @param snapshot The snapshot holding the overlay's text
+	 */
+	void drawOverlay(Graphics2D g,WorldSnapshot snapshot) {
+		if (snapshot.overlayVisible) {
+			FrameProfiler.drawOverlay(g,snapshot.overlay);
+		}
+	}
+}
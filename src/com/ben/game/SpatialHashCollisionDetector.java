@@ -0,0 +1,279 @@
+package com.ben.game;
+
+import java.util.ArrayList;
+
+/**
+ * A uniform grid over the playfield used as a collision broadphase.
+ * Each entity is filed in every cell its bounds overlap, and only
+ * entities sharing a cell are passed on to be tested against each
+ * other, so the cost of collision detection grows with the number of
+ * entities rather than the number of pairs of them.
+ * <p>
+ * The grid is kept up to date incrementally: an entity is only moved
+ * between cells when the range of cells it covers changes, which for
+ * the slow moving alien formation is rarely. Entities outside the
+ * playfield are filed in the nearest edge cells.
+ * <p>
+ * Entities added while a search is running, e.g. by a collision
+ * response, are held back and filed once the search is over. Filing
+ * them straight away could grow the cell being walked out from under
+ * the search.
+ */
+public class SpatialHashCollisionDetector implements CollisionDetector {
+	/** The size of a cell in pixels */
+	private static final int CELL_SIZE = 64;
+	/** The number of entities a cell can hold before it grows */
+	private static final int INITIAL_CELL_CAPACITY = 8;
+
+	/** The number of columns of cells */
+	private final int columns;
+	/** The number of rows of cells */
+	private final int rows;
+	/** The entities filed in each cell */
+	private final Entity[][] cells;
+	/** The number of entities in each cell */
+	private final int[] counts;
+	/** Bumped whenever the grid is cleared, so a search can tell it's been cut short */
+	private int generation;
+	/** The number of pairs passed to the narrowphase in the last search */
+	private int pairsTested;
+	/** True while a search is walking the cells */
+	private boolean searching;
+	/** The entities added during the current search, to be filed once it's over */
+	private Entity[] pending = new Entity[INITIAL_CELL_CAPACITY];
+	/** The number of entities in pending */
+	private int pendingCount;
+
+	/**
+	 * Create a new grid covering a playfield
+	 * 
+	 * @param width The width of the playfield in pixels
+	 * @param height The height of the playfield in pixels
+	 */
+	public SpatialHashCollisionDetector(int width,int height) {
+		columns = (width + CELL_SIZE - 1) / CELL_SIZE;
+		rows = (height + CELL_SIZE - 1) / CELL_SIZE;
+		cells = new Entity[columns * rows][];
+		counts = new int[columns * rows];
+		for (int i=0;i<cells.length;i++) {
+			cells[i] = new Entity[INITIAL_CELL_CAPACITY];
+		}
+	}
+
+	public void add(Entity entity) {
+		if (searching) {
+			if (pendingCount == pending.length) {
+				Entity[] grown = new Entity[pending.length * 2];
+				System.arraycopy(pending,0,grown,0,pendingCount);
+				pending = grown;
+			}
+			pending[pendingCount++] = entity;
+			return;
+		}
+		update(entity);
+	}
+
+	/**
+	 * File an entity in the cells it currently covers. Entities not yet
+	 * in the grid are added, entities that have moved into a different
+	 * range of cells are moved and everything else is left alone.
+	 * 
+	 * @param entity The entity to update
+	 */
+	private void update(Entity entity) {
+		if (!entity.isCollidable()) {
+			return;
+		}
+		int x0 = column(entity.getX());
+		int y0 = row(entity.getY());
+		int x1 = column(entity.getX() + entity.getSprite().getWidth() - 1);
+		int y1 = row(entity.getY() + entity.getSprite().getHeight() - 1);
+
+		if (entity.cellX0 == x0 && entity.cellY0 == y0 && entity.cellX1 == x1 && entity.cellY1 == y1) {
+			return;
+		}
+		if (entity.cellX0 >= 0) {
+			unfile(entity);
+		}
+		entity.cellX0 = x0;
+		entity.cellY0 = y0;
+		entity.cellX1 = x1;
+		entity.cellY1 = y1;
+		for (int y=y0;y<=y1;y++) {
+			for (int x=x0;x<=x1;x++) {
+				add(y * columns + x,entity);
+			}
+		}
+	}
+
+	public void remove(Entity entity) {
+		if (entity.cellX0 >= 0) {
+			unfile(entity);
+			entity.cellX0 = -1;
+		}
+		for (int i=0;i<pendingCount;i++) {
+			if (pending[i] == entity) {
+				pending[i] = pending[--pendingCount];
+				pending[pendingCount] = null;
+				break;
+			}
+		}
+	}
+
+	public void clear() {
+		for (int c=0;c<cells.length;c++) {
+			Entity[] cell = cells[c];
+			for (int i=0;i<counts[c];i++) {
+				cell[i].cellX0 = -1;
+				cell[i] = null;
+			}
+			counts[c] = 0;
+		}
+		for (int i=0;i<pendingCount;i++) {
+			pending[i] = null;
+		}
+		pendingCount = 0;
+		generation++;
+	}
+
+	/**
+	 * Bring the grid up to date with where everything has moved to,
+	 * then find every pair of entities that collide and notify both of
+	 * them. Only entities sharing a cell are tested, and a pair that 
+	 * shares several cells is only tested in the first of them. Entities
+	 * that can't interact (see Entity.canCollideWith) are never tested
+	 * and entities on no collision layer aren't filed at all.
+	 * 
+	 * @param entities The entities currently in the game
+	 */
+	public void findCollisions(ArrayList entities) {
+		for (int i=0;i<entities.size();i++) {
+			update((Entity) entities.get(i));
+		}
+		pairsTested = 0;
+
+		searching = true;
+		try {
+			search();
+		} finally {
+			searching = false;
+		}
+
+		// file anything the collision responses added, now the cells
+
+		// are free to grow
+
+		for (int i=0;i<pendingCount;i++) {
+			update(pending[i]);
+			pending[i] = null;
+		}
+		pendingCount = 0;
+	}
+
+	/**
+	 * Walk the cells testing every pair that shares one, stopping early
+	 * if a collision clears the grid
+	 */
+	private void search() {
+		int start = generation;
+
+		for (int c=0;c<cells.length;c++) {
+			Entity[] cell = cells[c];
+			int cx = c % columns;
+			int cy = c / columns;
+
+			for (int p=0;p<counts[c];p++) {
+				for (int s=p+1;s<counts[c];s++) {
+					Entity me = cell[p];
+					Entity him = cell[s];
+
+					// only test the pair in the top left cell they share, and
+
+					// only if they could have any effect on each other
+
+					if (!me.canCollideWith(him) || Math.max(me.cellX0,him.cellX0) != cx || Math.max(me.cellY0,him.cellY0) != cy) {
+						continue;
+					}
+					pairsTested++;
+					if (me.collidesWith(him)) {
+						me.collidedWith(him);
+
+						// unless the first response ended the level and took him out
+
+						if (him.isInGame()) {
+							him.collidedWith(me);
+						}
+
+						// a collision can end the level and clear the grid under us
+
+						if (generation != start) {
+							return;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	public int getPairsTested() {
+		return pairsTested;
+	}
+
+	/**
+	 * Add an entity to a cell
+	 * 
+	 * @param c The index of the cell
+	 * @param entity The entity to add
+	 */
+	private void add(int c,Entity entity) {
+		if (counts[c] == cells[c].length) {
+			Entity[] grown = new Entity[cells[c].length * 2];
+			System.arraycopy(cells[c],0,grown,0,counts[c]);
+			cells[c] = grown;
+		}
+		cells[c][counts[c]++] = entity;
+	}
+
+	/**
+	 * Remove an entity from all the cells it was filed in
+	 * 
+	 * @param entity The entity to remove
+	 */
+	private void unfile(Entity entity) {
+		for (int y=entity.cellY0;y<=entity.cellY1;y++) {
+			for (int x=entity.cellX0;x<=entity.cellX1;x++) {
+				int c = y * columns + x;
+				Entity[] cell = cells[c];
+				for (int i=0;i<counts[c];i++) {
+					if (cell[i] == entity) {
+						cell[i] = cell[--counts[c]];
+						cell[counts[c]] = null;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the column of cells a horizontal position falls in
+	 * 
+	 * @param x The x location in pixels
+	 * @return The column, clamped to the grid
+	 */
+	private int column(int x) {
+		int column = x / CELL_SIZE;
+		return column < 0 ? 0 : column >= columns ? columns - 1 : column;
+	}
+
+	/**
+	 * Get the row of cells a vertical position falls in
+	 * 
+	 * @param y The y location in pixels
+	 * @return The row, clamped to the grid
+	 */
+	private int row(int y) {
+		int row = y / CELL_SIZE;
+		return row < 0 ? 0 : row >= rows ? rows - 1 : row;
+	}
+}
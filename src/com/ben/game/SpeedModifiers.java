@@ -0,0 +1,217 @@
+package com.ben.game;
+
+import java.util.PriorityQueue;
+
+/**
+ * Keeps track of everything that changes the speed of the game during
+ * a level, so the speeds can be worked out from a handful of numbers
+ * rather than by rewriting the speed of every entity.
+ * <p>
+ * There are two kinds of modifier. The formation speeds up a little
+ * with every kill, which is kept as one running scalar. Power ups give
+ * timed effects which stack with each other, each one counted while it
+ * lasts and its expiry kept in a priority queue ordered by game time.
+ * Adding a kill is O(1), picking up a power up is O(log n) and only
+ * the effects that have run out are looked at each tick.
+ * <p>
+ * All modifiers are cleared at the start of each level.
+ */
+public class SpeedModifiers {
+	/** The effect given by shooting a rapid fire power up */
+	public static final int RAPID_FIRE = 0;
+	/** The effect given by shooting a slow down power up */
+	public static final int SLOW_DOWN = 1;
+	/** The number of kinds of effect */
+	private static final int EFFECTS = 2;
+
+	/** The formation speed up for each alien killed */
+	private static final double KILL_SPEED_UP = 1.02;
+	/** The formation speed for each slow down in effect */
+	private static final double SLOW_DOWN_SPEED = 0.5;
+	/** The shot speed for each rapid fire in effect */
+	private static final double RAPID_FIRE_SHOT_SPEED = 1.2;
+	/** The firing interval for each rapid fire in effect */
+	private static final double RAPID_FIRE_INTERVAL = 0.8;
+
+	/**
+	 * An effect that is currently running
+	 */
+	private static class Effect implements Comparable<Effect> {
+		/** The kind of effect */
+		int kind;
+		/** The game time at which the effect runs out (ms) */
+		double expires;
+
+		/**
+		 * Order effects so the first to run out comes first
+		 * 
+		 * @param other The effect to compare to
+		 * @return Less than zero if this effect runs out first
+		 */
+		public int compareTo(Effect other) {
+			return Double.compare(expires,other.expires);
+		}
+	}
+
+	/** The effects that will run out, first to expire at the head */
+	private PriorityQueue<Effect> expiries = new PriorityQueue<Effect>();
+	/** Effects that have run out, kept to be reused */
+	private Effect[] spare = new Effect[16];
+	/** The number of spare effects */
+	private int spareCount;
+	/** The number of effects of each kind currently running */
+	private int[] active = new int[EFFECTS];
+	/** How long each kind of effect lasts (ms), zero or less to last the rest of the level */
+	private double[] durations = new double[EFFECTS];
+	/** The speed up from all the aliens killed this level */
+	private double killScale = 1;
+	/** The formation speed scale with every modifier applied */
+	private double formationScale = 1;
+	/** The shot speed scale with every modifier applied */
+	private double shotSpeedScale = 1;
+	/** The firing interval scale with every modifier applied */
+	private double firingIntervalScale = 1;
+
+	/**
+	 * Create a new set of modifiers with the default effect durations
+	 */
+	public SpeedModifiers() {
+		durations[RAPID_FIRE] = 10000;
+		durations[SLOW_DOWN] = 5000;
+	}
+
+	/**
+	 * Set how long a kind of effect lasts. Effects already running keep
+	 * their original expiry.
+	 * 
+	 * @param kind The kind of effect, {@link #RAPID_FIRE} or {@link #SLOW_DOWN}
+	 * @param duration How long the effect lasts (ms), zero or less to last the rest of the level
+	 */
+	public void setDuration(int kind,double duration) {
+		durations[kind] = duration;
+	}
+
+	/**
+	 * Get how long a kind of effect lasts
+	 * 
+	 * @param kind The kind of effect
+	 * @return The duration (ms), zero or less if it lasts the rest of the level
+	 */
+	public double getDuration(int kind) {
+		return durations[kind];
+	}
+
+	/**
+	 * Remove every modifier, ready for a new level
+	 */
+	public void clear() {
+		while (!expiries.isEmpty()) {
+			recycle(expiries.poll());
+		}
+		for (int i=0;i<EFFECTS;i++) {
+			active[i] = 0;
+		}
+		killScale = 1;
+		recalculate();
+	}
+
+	/**
+	 * Note that an alien has been killed, speeding up the formation
+	 */
+	public void alienKilled() {
+		killScale *= KILL_SPEED_UP;
+		recalculate();
+	}
+
+	/**
+	 * Start an effect. Effects of the same kind stack.
+	 * 
+	 * @param kind The kind of effect, {@link #RAPID_FIRE} or {@link #SLOW_DOWN}
+	 * @param now The current game time (ms)
+	 */
+	public void start(int kind,double now) {
+		active[kind]++;
+		if (durations[kind] > 0) {
+			Effect effect = spareCount > 0 ? spare[--spareCount] : new Effect();
+			effect.kind = kind;
+			effect.expires = now + durations[kind];
+			expiries.add(effect);
+		}
+		recalculate();
+	}
+
+	/**
+	 * End any effects that have run out
+	 * 
+	 * @param now The current game time (ms)
+	 */
+	public void update(double now) {
+		if (expiries.isEmpty() || expiries.peek().expires > now) {
+			return;
+		}
+		while (!expiries.isEmpty() && expiries.peek().expires <= now) {
+			Effect effect = expiries.poll();
+			active[effect.kind]--;
+			recycle(effect);
+		}
+		recalculate();
+	}
+
+	/**
+	 * Keep an effect that has finished so it can be used again
+	 * 
+	 * @param effect The finished effect
+	 */
+	private void recycle(Effect effect) {
+		if (spareCount < spare.length) {
+			spare[spareCount++] = effect;
+		}
+	}
+
+	/**
+	 * Work out the combined scales from the kill scalar and the number
+	 * of each effect running
+	 */
+	private void recalculate() {
+		formationScale = killScale * Math.pow(SLOW_DOWN_SPEED,active[SLOW_DOWN]);
+		shotSpeedScale = Math.pow(RAPID_FIRE_SHOT_SPEED,active[RAPID_FIRE]);
+		firingIntervalScale = Math.pow(RAPID_FIRE_INTERVAL,active[RAPID_FIRE]);
+	}
+
+	/**
+	 * Get the number of effects of a kind currently running
+	 * 
+	 * @param kind The kind of effect
+	 * @return The number running
+	 */
+	public int getActive(int kind) {
+		return active[kind];
+	}
+
+	/**
+	 * Get the amount to scale the formation's speed by
+	 * 
+	 * @return The formation speed scale
+	 */
+	public double getFormationScale() {
+		return formationScale;
+	}
+
+	/**
+	 * Get the amount to scale the speed of new shots by
+	 * 
+	 * @return The shot speed scale
+	 */
+	public double getShotSpeedScale() {
+		return shotSpeedScale;
+	}
+
+	/**
+	 * Get the amount to scale the time between shots by
+	 * 
+	 * @return The firing interval scale
+	 */
+	public double getFiringIntervalScale() {
+		return firingIntervalScale;
+	}
+}
@@ -2,6 +2,7 @@ package com.ben.game;
 
 import java.awt.Graphics;
 import java.awt.Image;
+import java.awt.image.BufferedImage;
 
 /**
  * A sprite to be displayed on the screen. Note that a sprite
@@ -13,8 +14,26 @@ import java.awt.Image;
  * @author Kevin Glass
  */
 public class Sprite {
-	/** The image to be drawn for this sprite */
+	/** The image to be drawn for this sprite, possibly an atlas shared with other sprites */
 	private Image image;
+	/** The x location of this sprite within its image */
+	private int imageX;
+	/** The y location of this sprite within its image */
+	private int imageY;
+	/** The atlas this sprite was cut from, counts the times it is drawn */
+	SpriteAtlas atlas;
+	/** The width of the image, looked up once as it never changes */
+	private int width;
+	/** The height of the image, looked up once as it never changes */
+	private int height;
+	/** 
+	 * The solid pixels of the sprite, one bit per pixel packed into
+	 * longs, rows one after another. Bit n of a row's first long is
+	 * pixel n of the row. Null if the whole bounding box is solid.
+	 */
+	private long[] mask;
+	/** The number of longs used for each row of the mask */
+	private int maskWords;
 	
 	/**
 	 * Create a new sprite based on an image
@@ -23,6 +42,122 @@ public class Sprite {
 	 */
 	public Sprite(Image image) {
 		this.image = image;
+		this.width = image.getWidth(null);
+		this.height = image.getHeight(null);
+	}
+
+	/**
+	 * Create a new sprite based on an image with a collision mask
+	 * 
+	 * @param image The image that is this sprite
+	 * @param mask The solid pixels of the sprite, see {@link #createMask(BufferedImage)}
+	 */
+	public Sprite(Image image,long[] mask) {
+		this(image);
+		this.mask = mask;
+		this.maskWords = (width + 63) / 64;
+	}
+
+	/**
+	 * Create a new sprite from a region of a larger image
+	 * 
+	 * @param image The image holding this sprite, see {@link SpriteAtlas}
+	 * @param x The x location of the sprite within the image
+	 * @param y The y location of the sprite within the image
+	 * @param width The width of the sprite
+	 * @param height The height of the sprite
+	 * @param mask The solid pixels of the sprite, see {@link #createMask(BufferedImage)}
+	 */
+	public Sprite(Image image,int x,int y,int width,int height,long[] mask) {
+		this.image = image;
+		this.imageX = x;
+		this.imageY = y;
+		this.width = width;
+		this.height = height;
+		this.mask = mask;
+		this.maskWords = (width + 63) / 64;
+	}
+
+	/**
+	 * Build the collision mask for an image from its alpha channel. Any
+	 * pixel that isn't fully transparent counts as solid.
+	 * 
+	 * @param image The image to build the mask for
+	 * @return The packed mask
+	 */
+	public static long[] createMask(BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int words = (width + 63) / 64;
+		long[] mask = new long[words * height];
+		for (int y=0;y<height;y++) {
+			for (int x=0;x<width;x++) {
+				if ((image.getRGB(x,y) >>> 24) != 0) {
+					mask[y * words + (x >> 6)] |= 1L << (x & 63);
+				}
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Check if two sprites drawn at the given locations have any solid
+	 * pixels in common. The bounding boxes are assumed to overlap
+	 * already, only the overlapping region is examined, 64 pixels of a
+	 * row at a time.
+	 * 
+	 * @param a The first sprite
+	 * @param ax The x location of the first sprite
+	 * @param ay The y location of the first sprite
+	 * @param b The second sprite
+	 * @param bx The x location of the second sprite
+	 * @param by The y location of the second sprite
+	 * @return True if the solid pixels overlap
+	 */
+	public static boolean masksOverlap(Sprite a,int ax,int ay,Sprite b,int bx,int by) {
+		if (a.mask == null && b.mask == null) {
+			return true;
+		}
+		int left = Math.max(ax,bx);
+		int right = Math.min(ax + a.width,bx + b.width);
+		int top = Math.max(ay,by);
+		int bottom = Math.min(ay + a.height,by + b.height);
+
+		for (int y=top;y<bottom;y++) {
+			for (int x=left;x<right;x+=64) {
+				long overlap = a.rowBits(y - ay,x - ax) & b.rowBits(y - by,x - bx);
+				int width = right - x;
+				if (width < 64) {
+					overlap &= (1L << width) - 1;
+				}
+				if (overlap != 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get 64 pixels of one row of the mask as bits, starting from a 
+	 * given pixel. Pixels past the end of the row are clear.
+	 * 
+	 * @param row The row of the sprite
+	 * @param from The first pixel of the row to get
+	 * @return The pixels, the first in the lowest bit
+	 */
+	private long rowBits(int row,int from) {
+		if (mask == null) {
+			return -1L;
+		}
+		int base = row * maskWords;
+		int word = from >> 6;
+		int offset = from & 63;
+		long bits = mask[base + word] >>> offset;
+		if (offset != 0 && word + 1 < maskWords) {
+			bits |= mask[base + word + 1] << (64 - offset);
+		}
+		return bits;
 	}
 	
 	/**
@@ -31,7 +166,7 @@ public class Sprite {
 	 * @return The width in pixels of this sprite
 	 */
 	public int getWidth() {
-		return image.getWidth(null);
+		return width;
 	}
 
 	/**
@@ -40,9 +175,20 @@ public class Sprite {
 	 * @return The height in pixels of this sprite
 	 */
 	public int getHeight() {
-		return image.getHeight(null);
+		return height;
 	}
 	
+	/**
+	 * Change the image this sprite is drawn from, e.g. to a video memory
+	 * copy of its atlas. The sprite must be at the same location in the
+	 * new image.
+	 * 
+	 * @param image The image to draw from
+	 */
+	void setImage(Image image) {
+		this.image = image;
+	}
+
 	/**
 	 * Draw the sprite onto the graphics context provided
 	 * 
@@ -51,6 +197,34 @@ public class Sprite {
 	 * @param y The y location at which to draw the sprite
 	 */
 	public void draw(Graphics g,int x,int y) {
-		g.drawImage(image,x,y,null);
+		if (atlas != null) {
+			atlas.blits++;
+		}
+		g.drawImage(image,x,y,x + width,y + height,imageX,imageY,imageX + width,imageY + height,null);
+	}
+
+	/**
+	 * Draw only the part of the sprite that falls inside a rectangle
+	 * 
+	 * @param g The graphics context on which to draw the sprite
+	 * @param x The x location at which to draw the sprite
+	 * @param y The y location at which to draw the sprite
+	 * @param clipX The left of the rectangle to draw inside
+	 * @param clipY The top of the rectangle to draw inside
+	 * @param clipWidth The width of the rectangle to draw inside
+	 * @param clipHeight The height of the rectangle to draw inside
+	 */
+	public void draw(Graphics g,int x,int y,int clipX,int clipY,int clipWidth,int clipHeight) {
+		int x0 = Math.max(x,clipX);
+		int y0 = Math.max(y,clipY);
+		int x1 = Math.min(x + width,clipX + clipWidth);
+		int y1 = Math.min(y + height,clipY + clipHeight);
+		if (x0 >= x1 || y0 >= y1) {
+			return;
+		}
+		if (atlas != null) {
+			atlas.blits++;
+		}
+		g.drawImage(image,x0,y0,x1,y1,imageX + x0 - x,imageY + y0 - y,imageX + x1 - x,imageY + y1 - y,null);
 	}
 }
@@ -0,0 +1,329 @@
+package com.ben.game;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of sprite images packed into one image, with a table of the
+ * region each sprite occupies. Every sprite in the atlas draws a
+ * sub-rectangle of the same image, so drawing a frame doesn't switch
+ * between lots of small images and the whole set has a better chance
+ * of staying in video memory as a single accelerated surface.
+ * <p>
+ * The images are packed onto shelves: tallest first, left to right
+ * along a shelf until it is full, then a new shelf is started below.
+ * A pixel of padding is left around each region so nothing bleeds
+ * into its neighbours.
+ * <p>
+ * Optionally the sprites can be drawn from a copy of the atlas held in
+ * a VolatileImage, which lives in video memory but can lose its
+ * contents at any time (e.g. when the display mode changes). The copy
+ * must then be validated before each frame and restored from the
+ * packed image when needed, see {@link #validate(GraphicsConfiguration)}.
+ */
+public class SpriteAtlas {
+	/** The gap left between regions */
+	private static final int PADDING = 1;
+	/** The widest the atlas may be, shelves wrap at this width */
+	private static final int MAX_WIDTH = 512;
+
+	/** The image holding every sprite */
+	private Image image;
+	/** The video memory copy of the image, null unless volatile mode is on */
+	private VolatileImage volatileImage;
+	/** The sprite for each region, keyed by reference */
+	private HashMap sprites = new HashMap();
+	/** Every sprite cut from the atlas */
+	private ArrayList spriteList = new ArrayList();
+	/** The number of sprites drawn from the atlas since the last frame ended */
+	int blits;
+	/** The number of times the volatile copy had to be restored or recreated */
+	private int restores;
+	/** The width of the atlas image */
+	private int width;
+	/** The height of the atlas image */
+	private int height;
+	/** The memory taken by the image and the sprites' collision masks (bytes) */
+	private long bytes;
+	/** The number of entities in a game showing a sprite from the atlas */
+	private final AtomicInteger users = new AtomicInteger();
+
+	/**
+	 * Pack a set of images into a new atlas
+	 * 
+	 * @param refs The reference of each image
+	 * @param sources The images to pack, in the same order as refs
+	 * @param target Creates the image the atlas is packed into
+	 */
+	public SpriteAtlas(String[] refs,final BufferedImage[] sources,ImageFactory target) {
+		// pack the tallest images first so each shelf wastes as little
+
+		// height as possible
+
+		Integer[] order = new Integer[refs.length];
+		for (int i=0;i<order.length;i++) {
+			order[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(order,new Comparator<Integer>() {
+			public int compare(Integer a,Integer b) {
+				return sources[b.intValue()].getHeight() - sources[a.intValue()].getHeight();
+			}
+		});
+
+		int widest = 0;
+		for (int i=0;i<sources.length;i++) {
+			widest = Math.max(widest,sources[i].getWidth() + PADDING);
+		}
+		int shelfWidth = Math.max(MAX_WIDTH,widest);
+
+		int[] regionX = new int[refs.length];
+		int[] regionY = new int[refs.length];
+		int x = 0;
+		int y = 0;
+		int shelfHeight = 0;
+		for (int n=0;n<order.length;n++) {
+			int i = order[n].intValue();
+			BufferedImage source = sources[i];
+			if (x + source.getWidth() > shelfWidth) {
+				x = 0;
+				y += shelfHeight + PADDING;
+				shelfHeight = 0;
+			}
+			regionX[i] = x;
+			regionY[i] = y;
+			x += source.getWidth() + PADDING;
+			shelfHeight = Math.max(shelfHeight,source.getHeight());
+			width = Math.max(width,x);
+		}
+		height = y + shelfHeight;
+		width = Math.max(1,width);
+		height = Math.max(1,height);
+
+		// copy every image into its region in one go, then cut the
+
+		// sprites out of the table
+
+		image = target.createImage(width,height);
+		Graphics g = image.getGraphics();
+		for (int i=0;i<refs.length;i++) {
+			g.drawImage(sources[i],regionX[i],regionY[i],null);
+		}
+		g.dispose();
+		bytes = (long) width * height * 4;
+		for (int i=0;i<refs.length;i++) {
+			long[] mask = Sprite.createMask(sources[i]);
+			bytes += mask.length * 8;
+			Sprite sprite = new Sprite(image,regionX[i],regionY[i],sources[i].getWidth(),sources[i].getHeight(),mask);
+			sprite.atlas = this;
+			sprites.put(refs[i],sprite);
+			spriteList.add(sprite);
+		}
+	}
+
+	/**
+	 * Creates the image an atlas is packed into, e.g. one compatible
+	 * with the screen
+	 */
+	public interface ImageFactory {
+		/**
+		 * Create a new, transparent image
+		 * 
+		 * @param width The width of the image
+		 * @param height The height of the image
+		 * @return The new image
+		 */
+		public Image createImage(int width,int height);
+	}
+
+	/**
+	 * Start drawing the sprites from a copy of the atlas held in a
+	 * VolatileImage
+	 * 
+	 * @param gc The configuration of the screen being drawn to
+	 */
+	public void useVolatileImage(GraphicsConfiguration gc) {
+		createVolatileImage(gc);
+	}
+
+	/**
+	 * Check the volatile copy of the atlas is still usable before drawing
+	 * with it, restoring its contents or creating a new one if not
+	 * 
+	 * @param gc The configuration of the screen being drawn to
+	 */
+	public void validate(GraphicsConfiguration gc) {
+		if (volatileImage == null) {
+			return;
+		}
+		int state = volatileImage.validate(gc);
+		if (state == VolatileImage.IMAGE_INCOMPATIBLE) {
+			volatileImage.flush();
+			createVolatileImage(gc);
+			restores++;
+		} else if (state == VolatileImage.IMAGE_RESTORED) {
+			restore();
+			restores++;
+		}
+	}
+
+	/**
+	 * Check if the volatile copy lost its contents since it was last
+	 * validated, in which case anything drawn from it must be drawn again
+	 * 
+	 * @return True if the contents were lost
+	 */
+	public boolean contentsLost() {
+		return volatileImage != null && volatileImage.contentsLost();
+	}
+
+	/**
+	 * Check if the image sprites are drawn from is currently held
+	 * by the graphics hardware
+	 * 
+	 * @param gc The configuration of the screen being drawn to
+	 * @return True if drawing sprites is accelerated
+	 */
+	public boolean isAccelerated(GraphicsConfiguration gc) {
+		Image current = volatileImage != null ? volatileImage : image;
+		return current.getCapabilities(gc).isAccelerated();
+	}
+
+	/**
+	 * Get the number of sprites drawn since the last call, and start
+	 * counting again
+	 * 
+	 * @return The number of sprites drawn
+	 */
+	public int takeBlits() {
+		int count = blits;
+		blits = 0;
+		return count;
+	}
+
+	/**
+	 * Get the number of times the volatile copy has had to be restored
+	 * or recreated
+	 * 
+	 * @return The number of restores
+	 */
+	public int getRestores() {
+		return restores;
+	}
+
+	/**
+	 * Create the volatile copy of the atlas and point every sprite at it
+	 * 
+	 * @param gc The configuration of the screen being drawn to
+	 */
+	private void createVolatileImage(GraphicsConfiguration gc) {
+		volatileImage = gc.createCompatibleVolatileImage(width,height,Transparency.BITMASK);
+		restore();
+		for (int i=0;i<spriteList.size();i++) {
+			((Sprite) spriteList.get(i)).setImage(volatileImage);
+		}
+	}
+
+	/**
+	 * Copy the packed image back into the volatile copy
+	 */
+	private void restore() {
+		Graphics2D g = volatileImage.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(image,0,0,null);
+		g.dispose();
+	}
+
+	/**
+	 * Get the sprite for one of the packed images
+	 * 
+	 * @param ref The reference of the image
+	 * @return The sprite, or null if the image isn't in this atlas
+	 */
+	public Sprite getSprite(String ref) {
+		return (Sprite) sprites.get(ref);
+	}
+
+	/**
+	 * Get the image every sprite in the atlas is drawn from
+	 * 
+	 * @return The atlas image
+	 */
+	public Image getImage() {
+		return image;
+	}
+
+	/**
+	 * Get the width of the atlas image
+	 * 
+	 * @return The width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Get the height of the atlas image
+	 * 
+	 * @return The height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Note that an entity showing one of the atlas' sprites has joined
+	 * a game
+	 */
+	void addUser() {
+		users.incrementAndGet();
+	}
+
+	/**
+	 * Note that an entity showing one of the atlas' sprites has left
+	 * a game, or changed sprite
+	 */
+	void removeUser() {
+		users.decrementAndGet();
+	}
+
+	/**
+	 * Get the number of entities in a game showing a sprite from the
+	 * atlas. An atlas with users can't be evicted, since the entities
+	 * would go on drawing from it.
+	 * 
+	 * @return The number of users
+	 */
+	public int getUsers() {
+		return users.get();
+	}
+
+	/**
+	 * Get the memory the atlas takes, an estimate from the size of its
+	 * image and the sprites' collision masks
+	 * 
+	 * @return The size in bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Get the number of sprites packed into the atlas
+	 * 
+	 * @return The number of sprites
+	 */
+	public int getSpriteCount() {
+		return sprites.size();
+	}
+}
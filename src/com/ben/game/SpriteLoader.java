@@ -0,0 +1,268 @@
+package com.ben.game;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Decodes a set of sprite images in the background. Each image is read
+ * by its own task on a small pool of worker threads, so the images
+ * decode in parallel with each other and with whatever the game is
+ * doing meanwhile, e.g. bringing up its window. Progress can be polled
+ * to drive a loading screen, and {@link #await()} blocks until every
+ * image is ready.
+ * <p>
+ * An image that can't be found or decoded is replaced by a placeholder
+ * so the game can still run, and the problem is recorded rather than
+ * taking the game down.
+ */
+public class SpriteLoader {
+	/** The size of the placeholder used for images that failed to load */
+	private static final int PLACEHOLDER_SIZE = 16;
+
+	/** The reference of each image */
+	private String[] refs;
+	/** The decoded images, in the same order as the references */
+	private BufferedImage[] images;
+	/** The number of images finished, whether they loaded or not */
+	private AtomicInteger finished = new AtomicInteger();
+	/** Released once every image is finished */
+	private CountDownLatch done;
+	/** The problems met loading images */
+	private ArrayList failures = new ArrayList();
+	/** The time loading started (ns) */
+	private long started;
+	/** The time taken to load every image (ns), zero until done */
+	private volatile long loadTime;
+
+	/**
+	 * Start decoding a set of images
+	 * 
+	 * @param refs The references of the images to decode
+	 * @param threads The number of worker threads to decode on
+	 */
+	public SpriteLoader(String[] refs,int threads) {
+		this.refs = refs;
+		images = new BufferedImage[refs.length];
+		done = new CountDownLatch(refs.length);
+		started = System.nanoTime();
+		if (refs.length == 0) {
+			loadTime = 1;
+			return;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1,Math.min(threads,refs.length)),new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task,"Sprite loader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		for (int i=0;i<refs.length;i++) {
+			final int index = i;
+			pool.execute(new Runnable() {
+				public void run() {
+					load(index);
+				}
+			});
+		}
+
+		// the workers finish once the queue is empty
+
+		pool.shutdown();
+	}
+
+	/**
+	 * Decode one of the images, on a worker thread
+	 * 
+	 * @param index The index of the image
+	 */
+	private void load(int index) {
+		try {
+			images[index] = decode(refs[index]);
+		} catch (IOException e) {
+			synchronized (failures) {
+				failures.add(e.getMessage());
+			}
+			System.err.println(e.getMessage());
+			images[index] = createPlaceholder();
+		} finally {
+			if (finished.incrementAndGet() == refs.length) {
+				loadTime = System.nanoTime() - started;
+			}
+			done.countDown();
+		}
+	}
+
+	/**
+	 * Wait for every image to be decoded
+	 * 
+	 * @return The images, in the same order as the references
+	 */
+	public BufferedImage[] await() {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				done.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return images;
+	}
+
+	/**
+	 * Check if every image has finished loading
+	 * 
+	 * @return True if loading is over
+	 */
+	public boolean isDone() {
+		return done.getCount() == 0;
+	}
+
+	/**
+	 * Get the number of images finished so far, whether they loaded or not
+	 * 
+	 * @return The number of images
+	 */
+	public int getFinished() {
+		return finished.get();
+	}
+
+	/**
+	 * Get the number of images being loaded
+	 * 
+	 * @return The number of images
+	 */
+	public int getTotal() {
+		return refs.length;
+	}
+
+	/**
+	 * Get the references of the images being loaded
+	 * 
+	 * @return The references
+	 */
+	public String[] getRefs() {
+		return refs;
+	}
+
+	/**
+	 * Get a description of each image that failed to load
+	 * 
+	 * @return The failures, empty if everything loaded
+	 */
+	public String[] getFailures() {
+		synchronized (failures) {
+			return (String[]) failures.toArray(new String[failures.size()]);
+		}
+	}
+
+	/**
+	 * Get how long it took to load every image
+	 * 
+	 * @return The time in milliseconds, or zero if loading isn't finished
+	 */
+	public double getLoadTime() {
+		return loadTime / 1000000.0;
+	}
+
+	/**
+	 * Read an image from the resources
+	 * 
+	 * @param ref The reference to the image
+	 * @return The image read
+	 * @throws IOException Indicates the image couldn't be found or decoded
+	 */
+	public static BufferedImage decode(String ref) throws IOException {
+		// The ClassLoader.getResource() ensures we get the sprite
+
+		// from the appropriate place, this helps with deploying the game
+
+		// with things like webstart. You could equally do a file look
+
+		// up here.
+
+		URL url = SpriteLoader.class.getClassLoader().getResource(ref);
+		if (url == null) {
+			throw new IOException("Can't find ref: "+ref);
+		}
+
+		// use ImageIO to read the image in
+
+		BufferedImage image;
+		try {
+			image = ImageIO.read(url);
+		} catch (IOException e) {
+			throw new IOException("Failed to load: "+ref+" ("+e.getMessage()+")");
+		}
+		if (image == null) {
+			throw new IOException("Failed to load: "+ref+" (not a readable image)");
+		}
+		return image;
+	}
+
+	/**
+	 * Read the list of images in a manifest. Each line names one image,
+	 * blank lines and lines starting with # are ignored.
+	 * 
+	 * @param ref The reference to the manifest
+	 * @return The references of the images listed
+	 * @throws IOException Indicates the manifest couldn't be found or read
+	 */
+	public static String[] readManifest(String ref) throws IOException {
+		InputStream in = SpriteLoader.class.getClassLoader().getResourceAsStream(ref);
+		if (in == null) {
+			throw new IOException("Can't find manifest: "+ref);
+		}
+		ArrayList refs = new ArrayList();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in,"UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() > 0 && !line.startsWith("#")) {
+					refs.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return (String[]) refs.toArray(new String[refs.size()]);
+	}
+
+	/**
+	 * Create the image shown in place of one that failed to load, a
+	 * magenta box that is hard to miss
+	 * 
+	 * @return The placeholder image
+	 */
+	public static BufferedImage createPlaceholder() {
+		BufferedImage image = new BufferedImage(PLACEHOLDER_SIZE,PLACEHOLDER_SIZE,BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.magenta);
+		g.fillRect(0,0,PLACEHOLDER_SIZE,PLACEHOLDER_SIZE);
+		g.setColor(Color.black);
+		g.drawLine(0,0,PLACEHOLDER_SIZE - 1,PLACEHOLDER_SIZE - 1);
+		g.drawLine(PLACEHOLDER_SIZE - 1,0,0,PLACEHOLDER_SIZE - 1);
+		g.dispose();
+		return image;
+	}
+}
@@ -6,22 +6,59 @@ import java.awt.Image;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.net.URL;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
 import java.util.HashMap;
 
-import javax.imageio.ImageIO;
-
 /**
  * A resource manager for sprites in the game. Its often quite important
  * how and where you get your game resources from. In most cases
  * it makes sense to have a central resource loader that goes away, gets
  * your resources and caches them for future use.
  * <p>
+ * The sprites listed in the manifest are decoded in parallel when the
+ * game starts (see {@link #preload()}) and packed into one atlas. A
+ * sprite that fails to load is reported and drawn as a placeholder.
+ * <p>
+ * Each sprite is given a handle, a small int, the first time it is
+ * asked for (see {@link #getHandle(String)}). Code that draws or swaps
+ * sprites often should resolve its references to handles once and then
+ * use {@link #getSprite(int)}, which is a single array read with no
+ * hashing or locking. Resolving is synchronized, so loader threads
+ * can add sprites while another thread is drawing: the
+ * table of sprites is copied when it grows and published whole, so
+ * a reader always sees a complete table.
+ * <p>
+ * The manifest's sprites share one image and stay resident. Anything
+ * else, e.g. a level's ship skin, is loaded on its own and cached
+ * within a memory budget. Each level declares the sprites it uses up
+ * front with {@link #acquire(String[])} and lets them go with
+ * {@link #release(int[])} when it ends. Once the cache is over budget
+ * the least recently used sprites nothing holds are evicted, kept
+ * only behind a soft reference until the garbage collector wants the
+ * memory, and loaded again if they are asked for after that.
+ * <p>
+ * A sprite that is held, or that an entity in a game is showing, is
+ * never evicted: the entity would go on drawing it, so no memory would
+ * be freed and its atlas would stop being restored and counted. Of the
+ * rest the least recently used goes first. Recency only counts lookups
+ * by reference, {@link #getHandle(String)} and {@link #acquire(String[])},
+ * and an evicted sprite being brought back, so reading a resident
+ * sprite with {@link #getSprite(int)} stays a plain array read.
+ * <p>
+ * Images are decoded and packed outside the store's lock, so a thread
+ * loading sprites never holds up one bringing a sprite back or looking
+ * others up. The result is put in the store under the lock, and if
+ * two threads load the same sprite at once the first one in wins.
+ * <p>
  * [singleton]
  * <p>
  * @author Kevin Glass
  */
 public class SpriteStore {
+	/** The manifest listing every sprite the game uses, these are preloaded into the atlas */
+	private static final String MANIFEST = "sprites/manifest.txt";
+
 	/** The single instance of this class */
 	private static SpriteStore single = new SpriteStore();
 	
@@ -34,79 +71,734 @@ public class SpriteStore {
 		return single;
 	}
 	
-	/** The cached sprite map, from reference to sprite instance */
-	private HashMap sprites = new HashMap();
+	/** The budget used when none has been set (bytes) */
+	public static final long DEFAULT_BUDGET = 4 * 1024 * 1024;
+
+	/** The handle of each sprite resolved so far, from reference to Integer */
+	private HashMap handles = new HashMap();
+	/** The sprite for each handle, null while evicted, replaced rather than changed */
+	private volatile Sprite[] sprites = new Sprite[0];
+	/** The cache bookkeeping for each handle */
+	private ArrayList entries = new ArrayList();
+	/** The most memory sprites should take before unused ones are evicted (bytes) */
+	private long budget = DEFAULT_BUDGET;
+	/** The memory taken by the sprites currently resident (bytes) */
+	private long residentBytes;
+	/** The number of sprites asked for that were already resident */
+	private long hits;
+	/** The number of sprites asked for that had to be loaded or brought back */
+	private long misses;
+	/** The number of sprites evicted to stay within the budget */
+	private long evictions;
+	/** The number of evicted sprites brought back before they were collected */
+	private long revived;
+	/** Counts up each time a sprite is looked up by reference or brought back, to find the least recently used */
+	private long clock;
+	/** The atlas holding every sprite in the manifest, null until preloading finishes */
+	private SpriteAtlas atlas;
+	/** Decodes the sprites in the manifest, null until preloading starts */
+	private SpriteLoader loader;
+	/** True once the preloaded sprites are in the atlas */
+	private volatile boolean preloaded;
+	/** The problems met loading sprites */
+	private ArrayList failures = new ArrayList();
+	/** Every atlas sprites are drawn from, the main one and any loaded later, replaced when one is added */
+	private volatile SpriteAtlas[] atlases = new SpriteAtlas[0];
+	/** Creates the images atlases are packed into */
+	private SpriteAtlas.ImageFactory imageFactory = new SpriteAtlas.ImageFactory() {
+		public Image createImage(int width,int height) {
+			return createAcceleratedImage(width,height);
+		}
+	};
+	/** The screen sprites are drawn to from video memory, null unless volatile images are used */
+	private volatile GraphicsConfiguration volatileConfig;
 	
 	/**
-	 * Retrieve a sprite from the store
+	 * Start decoding every sprite in the manifest on a pool of worker
+	 * threads, returning straight away. The game can carry on setting
+	 * itself up, e.g. opening its window, and show the loader's progress
+	 * meanwhile. Does nothing if preloading has already started.
+	 * 
+	 * @return The loader decoding the sprites
+	 */
+	public synchronized SpriteLoader preload() {
+		if (loader == null) {
+			String[] refs;
+			try {
+				refs = SpriteLoader.readManifest(MANIFEST);
+			} catch (IOException e) {
+				fail(e.getMessage());
+				refs = new String[0];
+			}
+			loader = new SpriteLoader(refs,Runtime.getRuntime().availableProcessors());
+		}
+		return loader;
+	}
+
+	/**
+	 * Wait for the preloaded sprites and pack them into a single atlas
+	 * image, starting the preload first if nothing has yet
+	 */
+	private synchronized void finishPreload() {
+		if (preloaded) {
+			return;
+		}
+		SpriteLoader current = preload();
+		BufferedImage[] sources = current.await();
+		String[] refs = current.getRefs();
+		String[] problems = current.getFailures();
+		for (int i=0;i<problems.length;i++) {
+			failures.add(problems[i]);
+		}
+
+		// the manifest's sprites take the first handles, in the
+
+		// order they are listed, and stay resident since they
+
+		// share one image
+
+		atlas = new SpriteAtlas(refs,sources,imageFactory);
+		addAtlas(atlas);
+		residentBytes += atlas.getBytes();
+		for (int i=0;i<refs.length;i++) {
+			if (!handles.containsKey(refs[i])) {
+				register(refs[i],atlas.getSprite(refs[i]),null);
+			}
+		}
+		preloaded = true;
+	}
+
+	/**
+	 * Get the handle of a sprite, loading it if it hasn't been already.
+	 * The handle stays the same for as long as the game runs, even if
+	 * the sprite is evicted, so it only needs to be looked up once.
 	 * 
 	 * @param ref The reference to the image to use for the sprite
-	 * @return A sprite instance containing an accelerate image of the request reference
+	 * @return The handle of the sprite, for use with {@link #getSprite(int)}
 	 */
-	public Sprite getSprite(String ref) {
-		// if we've already got the sprite in the cache
+	public int getHandle(String ref) {
+		synchronized (this) {
+			// the first sprite asked for waits for the preload to finish
+
+			if (!preloaded) {
+				finishPreload();
+			}
 
-		// then just return the existing version
+			// if we've already got the sprite, which includes everything
 
-		if (sprites.get(ref) != null) {
-			return (Sprite) sprites.get(ref);
+			// in the atlas, then just return its handle
+
+			Integer handle = (Integer) handles.get(ref);
+			if (handle != null && makeResident(handle.intValue())) {
+				return handle.intValue();
+			}
 		}
-		
+
 		// otherwise, go away and grab the sprite from the resource
 
-		// loader
+		// loader and give it an accelerated image of its own, an
 
-		BufferedImage sourceImage = null;
-		
-		try {
-			// The ClassLoader.getResource() ensures we get the sprite
+		// atlas of one. This happens outside the lock so nothing else
+
+		// waits on the decode
+
+		SpriteAtlas single = load(ref);
+		synchronized (this) {
+			return install(ref,single);
+		}
+	}
 
-			// from the appropriate place, this helps with deploying the game
+	/**
+	 * Declare the sprites something, e.g. a level, is going to use.
+	 * Any that aren't resident are loaded, in parallel, and each is held
+	 * resident until it is released.
+	 * 
+	 * @param refs The references to the images of the sprites
+	 * @return The handle of each sprite, in the same order
+	 */
+	public int[] acquire(String[] refs) {
+		int[] acquired = new int[refs.length];
+		ArrayList missing = new ArrayList();
+		synchronized (this) {
+			if (!preloaded) {
+				finishPreload();
+			}
 
-			// with things like webstart. You could equally do a file look
+			// hold everything that is resident straight away, so it
 
-			// up here.
+			// can't be evicted while the rest are loading
 
-			URL url = this.getClass().getClassLoader().getResource(ref);
-			
-			if (url == null) {
-				fail("Can't find ref: "+ref);
+			for (int i=0;i<refs.length;i++) {
+				Integer handle = (Integer) handles.get(refs[i]);
+				if (handle != null && makeResident(handle.intValue())) {
+					acquired[i] = handle.intValue();
+					((Entry) entries.get(acquired[i])).references++;
+				} else {
+					acquired[i] = -1;
+					if (!missing.contains(refs[i])) {
+						missing.add(refs[i]);
+					}
+				}
 			}
-			
-			// use ImageIO to read the image in
+		}
+		if (missing.size() == 0) {
+			return acquired;
+		}
 
-			sourceImage = ImageIO.read(url);
-		} catch (IOException e) {
-			fail("Failed to load: "+ref);
+		// decode everything else in one go rather than one at a time,
+
+		// outside the lock so nothing else waits on it
+
+		String[] loading = (String[]) missing.toArray(new String[missing.size()]);
+		SpriteLoader batch = new SpriteLoader(loading,Runtime.getRuntime().availableProcessors());
+		BufferedImage[] images = batch.await();
+		SpriteAtlas[] loaded = new SpriteAtlas[loading.length];
+		for (int i=0;i<loading.length;i++) {
+			loaded[i] = pack(loading[i],images[i]);
 		}
-		
-		// create an accelerated image of the right size to store our sprite in
 
-		GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
-		Image image = gc.createCompatibleImage(sourceImage.getWidth(),sourceImage.getHeight(),Transparency.BITMASK);
-		
-		// draw our source image into the accelerated image
+		synchronized (this) {
+			String[] problems = batch.getFailures();
+			for (int i=0;i<problems.length;i++) {
+				failures.add(problems[i]);
+			}
+			for (int i=0;i<loading.length;i++) {
+				install(loading[i],loaded[i]);
+			}
+			for (int i=0;i<refs.length;i++) {
+				if (acquired[i] < 0) {
+					acquired[i] = ((Integer) handles.get(refs[i])).intValue();
+					((Entry) entries.get(acquired[i])).references++;
+				}
+			}
+		}
+		return acquired;
+	}
 
-		image.getGraphics().drawImage(sourceImage,0,0,null);
-		
-		// create a sprite, add it the cache then return it
+	/**
+	 * Let go of sprites taken with {@link #acquire(String[])}. Sprites
+	 * nothing holds any more can then be evicted if the cache is over
+	 * its budget, least recently used first.
+	 * 
+	 * @param released The handles of the sprites
+	 */
+	public synchronized void release(int[] released) {
+		for (int i=0;i<released.length;i++) {
+			Entry entry = (Entry) entries.get(released[i]);
+			if (entry.references > 0) {
+				entry.references--;
+			}
+		}
+		trim();
+	}
 
-		Sprite sprite = new Sprite(image);
-		sprites.put(ref,sprite);
-		
+	/**
+	 * Get the sprite for a handle. A sprite that has been evicted is
+	 * brought back first, which is slow, so anything that is going to
+	 * be drawn should be held with {@link #acquire(String[])}. Getting
+	 * a resident sprite doesn't count as a use for eviction.
+	 * 
+	 * @param handle The handle of the sprite, from {@link #getHandle(String)}
+	 * @return The sprite
+	 */
+	public Sprite getSprite(int handle) {
+		Sprite sprite = sprites[handle];
+		if (sprite == null) {
+			sprite = reload(handle);
+		}
 		return sprite;
 	}
+
+	/**
+	 * Retrieve a sprite from the store. This looks the reference up
+	 * every time, anything asked for often should keep its handle
+	 * instead (see {@link #getHandle(String)}).
+	 * 
+	 * @param ref The reference to the image to use for the sprite
+	 * @return A sprite instance containing an accelerate image of the request reference
+	 */
+	public Sprite getSprite(String ref) {
+		return getSprite(getHandle(ref));
+	}
+
+	/**
+	 * Bring an evicted sprite back, loading it again outside the lock
+	 * if its image has been collected
+	 * 
+	 * @param handle The handle of the sprite
+	 * @return The sprite
+	 */
+	private Sprite reload(int handle) {
+		String ref;
+		synchronized (this) {
+			if (makeResident(handle)) {
+				return sprites[handle];
+			}
+			ref = ((Entry) entries.get(handle)).ref;
+		}
+		SpriteAtlas single = load(ref);
+		synchronized (this) {
+			install(ref,single);
+			return sprites[handle];
+		}
+	}
+
+	/**
+	 * Make sure a sprite is resident, bringing it back from its soft
+	 * reference if it has been evicted, and mark it as just used.
+	 * Nothing is loaded here, a sprite whose image has been collected
+	 * has to be loaded outside the lock and put back with
+	 * {@link #install(String,SpriteAtlas)}. Called with the store locked.
+	 * 
+	 * @param handle The handle of the sprite
+	 * @return True if the sprite is resident, false if it has to be loaded again
+	 */
+	private boolean makeResident(int handle) {
+		Entry entry = (Entry) entries.get(handle);
+		entry.lastUsed = ++clock;
+		if (sprites[handle] != null) {
+			hits++;
+			return true;
+		}
+		Sprite sprite = (Sprite) entry.evicted.get();
+		if (sprite == null) {
+			return false;
+		}
+		misses++;
+		revived++;
+		addAtlas(sprite.atlas);
+		entry.evicted = null;
+		residentBytes += entry.bytes;
+		publish(handle,sprite);
+		return true;
+	}
+
+	/**
+	 * Put a sprite loaded outside the lock into the store, either as a
+	 * new sprite or in place of an evicted one whose image has been
+	 * collected. If another thread put the sprite in while this one was
+	 * loading it, that copy is kept and this one dropped. Called with
+	 * the store locked.
+	 * 
+	 * @param ref The reference to the sprite's image
+	 * @param single The atlas of one holding the loaded sprite
+	 * @return The sprite's handle
+	 */
+	private int install(String ref,SpriteAtlas single) {
+		Integer handle = (Integer) handles.get(ref);
+		if (handle == null) {
+			misses++;
+			return register(ref,single);
+		}
+		if (makeResident(handle.intValue())) {
+			return handle.intValue();
+		}
+		misses++;
+		Entry entry = (Entry) entries.get(handle.intValue());
+		addAtlas(single);
+		entry.evicted = null;
+		entry.bytes = single.getBytes();
+		residentBytes += entry.bytes;
+		publish(handle.intValue(),single.getSprite(ref));
+		return handle.intValue();
+	}
+
+	/**
+	 * Evict the least recently used sprites nothing holds, and no entity
+	 * in a game is showing, until the cache is back within its budget or
+	 * nothing more can go. Called with the store locked.
+	 */
+	private void trim() {
+		while (residentBytes > budget) {
+			int oldest = -1;
+			long oldestUse = Long.MAX_VALUE;
+			for (int i=0;i<entries.size();i++) {
+				Entry entry = (Entry) entries.get(i);
+				if (entry.references == 0 && entry.bytes > 0 && sprites[i] != null && sprites[i].atlas.getUsers() == 0
+						&& entry.lastUsed < oldestUse) {
+					oldest = i;
+					oldestUse = entry.lastUsed;
+				}
+			}
+			if (oldest < 0) {
+				return;
+			}
+			evict(oldest);
+		}
+	}
+
+	/**
+	 * Evict a sprite. It is kept behind a soft reference, so if it is
+	 * wanted again before memory runs short it can come straight back.
+	 * Called with the store locked.
+	 * 
+	 * @param handle The handle of the sprite
+	 */
+	private void evict(int handle) {
+		Entry entry = (Entry) entries.get(handle);
+		Sprite sprite = sprites[handle];
+		entry.evicted = new SoftReference(sprite);
+		residentBytes -= entry.bytes;
+		evictions++;
+		removeAtlas(sprite.atlas);
+		publish(handle,null);
+	}
+
+	/**
+	 * Give a sprite loaded on its own the next handle. Called with the
+	 * store locked.
+	 * 
+	 * @param ref The reference to the sprite's image
+	 * @param single The atlas of one holding the sprite
+	 * @return The sprite's handle
+	 */
+	private int register(String ref,SpriteAtlas single) {
+		addAtlas(single);
+		residentBytes += single.getBytes();
+		return register(ref,single.getSprite(ref),single);
+	}
+
+	/**
+	 * Give a sprite the next handle. Called with the store locked.
+	 * 
+	 * @param ref The reference to the sprite's image
+	 * @param sprite The sprite
+	 * @param own The atlas the sprite has to itself, or null if it shares the manifest's atlas and can't be evicted
+	 * @return The sprite's handle
+	 */
+	private int register(String ref,Sprite sprite,SpriteAtlas own) {
+		int handle = entries.size();
+		Entry entry = new Entry();
+		entry.ref = ref;
+		entry.bytes = own != null ? own.getBytes() : 0;
+		entry.lastUsed = ++clock;
+		entries.add(entry);
+
+		Sprite[] current = sprites;
+		Sprite[] grown = new Sprite[handle + 1];
+		System.arraycopy(current,0,grown,0,current.length);
+		grown[handle] = sprite;
+
+		// fill the new table in before publishing it, so a reader
+
+		// never sees an empty entry
+
+		sprites = grown;
+		handles.put(ref,Integer.valueOf(handle));
+		return handle;
+	}
+
+	/**
+	 * Change the sprite for a handle. The table is copied and published
+	 * whole so a reader on another thread sees either the old sprite
+	 * or the new one. Called with the store locked.
+	 * 
+	 * @param handle The handle of the sprite
+	 * @param sprite The sprite, or null if it has been evicted
+	 */
+	private void publish(int handle,Sprite sprite) {
+		Sprite[] changed = sprites.clone();
+		changed[handle] = sprite;
+		sprites = changed;
+	}
+
+	/**
+	 * Add an atlas to those sprites are drawn from. Called with the
+	 * store locked.
+	 * 
+	 * @param added The new atlas
+	 */
+	private void addAtlas(SpriteAtlas added) {
+		if (volatileConfig != null) {
+			added.useVolatileImage(volatileConfig);
+		}
+		SpriteAtlas[] current = atlases;
+		SpriteAtlas[] grown = new SpriteAtlas[current.length + 1];
+		System.arraycopy(current,0,grown,0,current.length);
+		grown[current.length] = added;
+		atlases = grown;
+	}
+
+	/**
+	 * Stop drawing from an atlas, e.g. because its sprite was evicted.
+	 * Called with the store locked.
+	 * 
+	 * @param removed The atlas
+	 */
+	private void removeAtlas(SpriteAtlas removed) {
+		SpriteAtlas[] current = atlases;
+		SpriteAtlas[] shrunk = new SpriteAtlas[current.length - 1];
+		int n = 0;
+		for (int i=0;i<current.length;i++) {
+			if (current[i] != removed) {
+				shrunk[n++] = current[i];
+			}
+		}
+		atlases = shrunk;
+	}
+
+	/**
+	 * Get the number of sprites that have been given handles
+	 * 
+	 * @return The number of sprites
+	 */
+	public int getSpriteCount() {
+		return sprites.length;
+	}
+
+	/**
+	 * Set the most memory sprites should take. Sprites nothing holds
+	 * are evicted straight away if they no longer fit.
+	 * 
+	 * @param bytes The budget in bytes
+	 */
+	public synchronized void setBudget(long bytes) {
+		budget = bytes;
+		trim();
+	}
+
+	/**
+	 * Get the most memory sprites should take
+	 * 
+	 * @return The budget in bytes
+	 */
+	public synchronized long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Get the memory taken by the sprites currently resident, an
+	 * estimate from the size of their images and collision masks
+	 * 
+	 * @return The size in bytes
+	 */
+	public synchronized long getResidentBytes() {
+		return residentBytes;
+	}
+
+	/**
+	 * Get the number of times a sprite was asked for and was already resident
+	 * 
+	 * @return The number of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of times a sprite was asked for and had to be
+	 * loaded or brought back from eviction
+	 * 
+	 * @return The number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of sprites evicted to stay within the budget
+	 * 
+	 * @return The number of evictions
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Describe how the sprite cache has been used
+	 * 
+	 * @return One line of stats
+	 */
+	public synchronized String getCacheStats() {
+		return "sprites: "+sprites.length+" known, "+residentBytes+" of "+budget+" bytes resident, "
+			+hits+" hits, "+misses+" misses, "+evictions+" evicted, "+revived+" revived";
+	}
+
+	/**
+	 * The cache bookkeeping for one sprite handle
+	 */
+	private static class Entry {
+		/** The reference to the sprite's image, to load it again */
+		private String ref;
+		/** The memory the sprite takes while resident, zero if it can't be evicted (bytes) */
+		private long bytes;
+		/** The number of holders of the sprite, see {@link SpriteStore#acquire(String[])} */
+		private int references;
+		/** The value of the clock when the sprite was last looked up by reference or brought back */
+		private long lastUsed;
+		/** The sprite while it is evicted, until the garbage collector needs the memory */
+		private SoftReference evicted;
+	}
+
+	/**
+	 * Get the atlas holding every sprite in the manifest, waiting for
+	 * the preload to finish if it hasn't
+	 * 
+	 * @return The sprite atlas
+	 */
+	public SpriteAtlas getAtlas() {
+		if (!preloaded) {
+			finishPreload();
+		}
+		return atlas;
+	}
+
+	/**
+	 * Get a description of each sprite that failed to load. Sprites
+	 * that fail are drawn as a placeholder rather than stopping the game.
+	 * 
+	 * @return The failures, empty if everything loaded
+	 */
+	public synchronized String[] getFailures() {
+		return (String[]) failures.toArray(new String[failures.size()]);
+	}
+
+	/**
+	 * Draw sprites from copies of their atlases held in VolatileImages,
+	 * rather than relying on Java2D to cache them in video memory.
+	 * {@link #validate(GraphicsConfiguration)} must then be called
+	 * before each frame is drawn.
+	 * 
+	 * @param gc The configuration of the screen being drawn to
+	 */
+	public synchronized void useVolatileImages(GraphicsConfiguration gc) {
+		volatileConfig = gc;
+		SpriteAtlas[] current = atlases;
+		for (int i=0;i<current.length;i++) {
+			current[i].useVolatileImage(gc);
+		}
+	}
+
+	/**
+	 * Make sure every volatile atlas is ready to draw from, restoring
+	 * any whose contents have been lost
+	 * 
+	 * @param gc The configuration of the screen being drawn to
+	 */
+	public void validate(GraphicsConfiguration gc) {
+		if (volatileConfig == null) {
+			return;
+		}
+		SpriteAtlas[] current = atlases;
+		for (int i=0;i<current.length;i++) {
+			current[i].validate(gc);
+		}
+	}
+
+	/**
+	 * Check if any volatile atlas lost its contents while a frame was
+	 * being drawn, in which case the frame has to be drawn again
+	 * 
+	 * @return True if contents were lost
+	 */
+	public boolean contentsLost() {
+		if (volatileConfig == null) {
+			return false;
+		}
+		SpriteAtlas[] current = atlases;
+		for (int i=0;i<current.length;i++) {
+			if (current[i].contentsLost()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Count the sprites drawn this frame, split by whether they came
+	 * from an image the graphics hardware holds
+	 * 
+	 * @param stats The stats of the frame to count in
+	 * @param gc The configuration of the screen drawn to, null if there is none
+	 */
+	public void countBlits(FrameStats stats,GraphicsConfiguration gc) {
+		SpriteAtlas[] current = atlases;
+		for (int i=0;i<current.length;i++) {
+			int blits = current[i].takeBlits();
+			if (gc != null && current[i].isAccelerated(gc)) {
+				stats.count(FrameProfiler.ACCELERATED_BLITS,blits);
+			} else {
+				stats.count(FrameProfiler.SOFTWARE_BLITS,blits);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of times volatile atlases have had to be restored
+	 * 
+	 * @return The number of restores
+	 */
+	public int getRestores() {
+		int restores = 0;
+		SpriteAtlas[] current = atlases;
+		for (int i=0;i<current.length;i++) {
+			restores += current[i].getRestores();
+		}
+		return restores;
+	}
+
+	/**
+	 * Load a sprite on its own, packed into an atlas of one. Called
+	 * without the store locked, the atlas is put in the store afterwards.
+	 * 
+	 * @param ref The reference to the sprite's image
+	 * @return The atlas holding the sprite
+	 */
+	private SpriteAtlas load(String ref) {
+		return pack(ref,loadImage(ref));
+	}
+
+	/**
+	 * Pack a sprite's image into an atlas of its own
+	 * 
+	 * @param ref The reference to the sprite's image
+	 * @param image The image
+	 * @return The atlas holding the sprite
+	 */
+	private SpriteAtlas pack(String ref,BufferedImage image) {
+		return new SpriteAtlas(new String[] {ref},new BufferedImage[] {image},imageFactory);
+	}
+
+	/**
+	 * Read an image from the resources
+	 * 
+	 * @param ref The reference to the image
+	 * @return The image read
+	 */
+	private BufferedImage loadImage(String ref) {
+		try {
+			return SpriteLoader.decode(ref);
+		} catch (IOException e) {
+			fail(e.getMessage());
+			return SpriteLoader.createPlaceholder();
+		}
+	}
+
+	/**
+	 * Create an accelerated image to hold sprites, or a plain one if
+	 * there is no screen to be compatible with
+	 * 
+	 * @param width The width of the image
+	 * @param height The height of the image
+	 * @return The new, transparent image
+	 */
+	Image createAcceleratedImage(int width,int height) {
+		if (GraphicsEnvironment.isHeadless()) {
+			return new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
+		}
+		GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		return gc.createCompatibleImage(width,height,Transparency.BITMASK);
+	}
 	
 	/**
-	 * Utility method to handle resource loading failure
+	 * Utility method to handle resource loading failure. The problem is
+	 * reported and kept, see {@link #getFailures()}, and the game carries
+	 * on with a placeholder in place of the missing sprite.
 	 * 
 	 * @param message The message to display on failure
 	 */
-	private void fail(String message) {
-		// we'n't available
-		// we dump the message and exit the game
-
+	private synchronized void fail(String message) {
 		System.err.println(message);
-		System.exit(0);
+		failures.add(message);
 	}
 }
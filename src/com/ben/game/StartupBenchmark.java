@@ -0,0 +1,81 @@
+package com.ben.game;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how long the game takes to start. The first game created in
+ * the JVM is timed from the start of its construction to its first
+ * frame, which covers decoding the sprites, packing the atlas and
+ * setting up the first level; the time since the JVM started is shown
+ * alongside. The sprite manifest is then decoded a number of times on
+ * one thread and on a pool of one thread per core, to show what the
+ * parallel preload saves.
+ * <p>
+ * Usage: StartupBenchmark [runs] [display]
+ * <p>
+ * Pass "display" to open the real window, otherwise the first frame is
+ * drawn into an {@link ImageRenderTarget}.
+ */
+public class StartupBenchmark {
+	/** The manifest listing every sprite the game preloads */
+	private static final String MANIFEST = "sprites/manifest.txt";
+
+	/**
+	 * Decode every sprite in the manifest
+	 * 
+	 * @param refs The sprites to decode
+	 * @param threads The number of worker threads to decode on
+	 * @return The time taken (ms)
+	 */
+	private static double decode(String[] refs,int threads) {
+		SpriteLoader loader = new SpriteLoader(refs,threads);
+		BufferedImage[] images = loader.await();
+		if (images.length != refs.length) {
+			throw new IllegalStateException("Expected "+refs.length+" images");
+		}
+		return loader.getLoadTime();
+	}
+
+	/**
+	 * The entry point for the benchmark
+	 * 
+	 * @param argv The number of decode runs and whether to open the window, both optional
+	 */
+	public static void main(String argv[]) throws Exception {
+		boolean display = argv.length > 1 && argv[1].equals("display");
+		if (!display && System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		int runs = argv.length > 0 ? Integer.parseInt(argv[0]) : 20;
+
+		// the first game in the JVM pays for class loading and decoding
+
+		// everything cold, just like a real start
+
+		Game game = new Game(display);
+		if (!display) {
+			game.setRenderTarget(new ImageRenderTarget(800,600));
+		}
+		game.drawFrame(1);
+		double jvmUptime = ManagementFactory.getRuntimeMXBean().getUptime();
+		System.out.println(String.format("time to first frame:   %.1f ms (%.0f ms since JVM start)",
+				game.getTimeToFirstFrame(),jvmUptime));
+		String[] failures = SpriteStore.get().getFailures();
+		for (int i=0;i<failures.length;i++) {
+			System.out.println("failed: "+failures[i]);
+		}
+
+		String[] refs = SpriteLoader.readManifest(MANIFEST);
+		int cores = Runtime.getRuntime().availableProcessors();
+		double serial = Double.MAX_VALUE;
+		double parallel = Double.MAX_VALUE;
+		for (int i=0;i<runs;i++) {
+			serial = Math.min(serial,decode(refs,1));
+			parallel = Math.min(parallel,decode(refs,cores));
+		}
+		System.out.println(String.format("decode %d sprites:     %.2f ms on 1 thread, %.2f ms on %d (best of %d)",
+				refs.length,serial,parallel,cores,runs));
+		System.exit(0);
+	}
+}
@@ -0,0 +1,202 @@
+package com.ben.game;
+
+import java.util.ArrayList;
+
+/**
+ * Sort and sweep collision detection. Entities are kept in a list
+ * sorted by their left edge, and each entity is only tested against
+ * the entities after it whose left edge lies before its right edge.
+ * <p>
+ * The list is kept between ticks and re-sorted with an insertion sort.
+ * Since the alien formation moves in lockstep the order barely changes
+ * from one tick to the next, so the sort is close to a single pass.
+ * <p>
+ * Entities added while a search is running, e.g. by a collision
+ * response, are held back and added once the search is over, so the
+ * list and the edges being swept never change under it.
+ */
+public class SweepAndPruneCollisionDetector implements CollisionDetector {
+	/** The entities sorted by left edge */
+	private Entity[] sorted = new Entity[256];
+	/** The left edge of each entity in sorted, as of the last sort */
+	private int[] left = new int[256];
+	/** The number of slots in use, including ones freed since the last sort */
+	private int size;
+	/** True if slots have been freed since the last sort */
+	private boolean holes;
+	/** Bumped whenever the list is cleared, so a search can tell it's been cut short */
+	private int generation;
+	/** The number of pairs tested in the last search */
+	private int pairsTested;
+	/** True while a search is sweeping the list */
+	private boolean searching;
+	/** The entities added during the current search, to be added once it's over */
+	private Entity[] pending = new Entity[16];
+	/** The number of entities in pending */
+	private int pendingCount;
+
+	public void add(Entity entity) {
+		if (!entity.isCollidable()) {
+			return;
+		}
+		if (searching) {
+			if (pendingCount == pending.length) {
+				Entity[] grown = new Entity[pending.length * 2];
+				System.arraycopy(pending,0,grown,0,pendingCount);
+				pending = grown;
+			}
+			pending[pendingCount++] = entity;
+			return;
+		}
+		if (size == sorted.length) {
+			Entity[] grown = new Entity[sorted.length * 2];
+			System.arraycopy(sorted,0,grown,0,size);
+			sorted = grown;
+			left = new int[grown.length];
+		}
+		entity.sweepIndex = size;
+		sorted[size++] = entity;
+	}
+
+	public void remove(Entity entity) {
+		if (entity.sweepIndex >= 0) {
+			sorted[entity.sweepIndex] = null;
+			entity.sweepIndex = -1;
+			holes = true;
+		}
+		for (int i=0;i<pendingCount;i++) {
+			if (pending[i] == entity) {
+				pending[i] = pending[--pendingCount];
+				pending[pendingCount] = null;
+				break;
+			}
+		}
+	}
+
+	public void clear() {
+		for (int i=0;i<size;i++) {
+			if (sorted[i] != null) {
+				sorted[i].sweepIndex = -1;
+				sorted[i] = null;
+			}
+		}
+		size = 0;
+		holes = false;
+		for (int i=0;i<pendingCount;i++) {
+			pending[i] = null;
+		}
+		pendingCount = 0;
+		generation++;
+	}
+
+	public void findCollisions(ArrayList entities) {
+		pairsTested = 0;
+		sort();
+
+		searching = true;
+		try {
+			search();
+		} finally {
+			searching = false;
+		}
+
+		// add anything the collision responses added, the next sort
+
+		// puts them in their place
+
+		for (int i=0;i<pendingCount;i++) {
+			add(pending[i]);
+			pending[i] = null;
+		}
+		pendingCount = 0;
+	}
+
+	/**
+	 * Sweep the sorted list testing every pair that overlaps along x,
+	 * stopping early if a collision clears the list
+	 */
+	private void search() {
+		int start = generation;
+
+		for (int i=0;i<size;i++) {
+			Entity me = sorted[i];
+			int right = left[i] + me.getSprite().getWidth();
+			int top = me.getY();
+			int bottom = top + me.getSprite().getHeight();
+
+			for (int j=i+1;j<size && left[j] < right;j++) {
+				Entity him = sorted[j];
+				int hisTop = him.getY();
+
+				// cheap layer and vertical rejection before the full test
+
+				if (!me.canCollideWith(him) || hisTop >= bottom || top >= hisTop + him.getSprite().getHeight()) {
+					continue;
+				}
+				pairsTested++;
+				if (me.collidesWith(him)) {
+					me.collidedWith(him);
+
+					// unless the first response ended the level and took him out
+
+					if (him.isInGame()) {
+						him.collidedWith(me);
+					}
+
+					// a collision can end the level and clear the list under us
+
+					if (generation != start) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	public int getPairsTested() {
+		return pairsTested;
+	}
+
+	/**
+	 * Squeeze out the slots of removed entities and bring the list back
+	 * into order of left edge.
+	 */
+	private void sort() {
+		if (holes) {
+			int live = 0;
+			for (int i=0;i<size;i++) {
+				if (sorted[i] != null) {
+					sorted[live++] = sorted[i];
+				}
+			}
+			for (int i=live;i<size;i++) {
+				sorted[i] = null;
+			}
+			size = live;
+			holes = false;
+		}
+
+		for (int i=0;i<size;i++) {
+			left[i] = sorted[i].getX();
+		}
+
+		// insertion sort, close to linear as the order rarely changes
+
+		for (int i=1;i<size;i++) {
+			Entity entity = sorted[i];
+			int key = left[i];
+			int j = i - 1;
+			while (j >= 0 && left[j] > key) {
+				sorted[j + 1] = sorted[j];
+				left[j + 1] = left[j];
+				j--;
+			}
+			sorted[j + 1] = entity;
+			left[j + 1] = key;
+		}
+
+		for (int i=0;i<size;i++) {
+			sorted[i].sweepIndex = i;
+		}
+	}
+}
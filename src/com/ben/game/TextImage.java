@@ -0,0 +1,151 @@
+package com.ben.game;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+
+/**
+ * A line of text drawn once into an image and copied to the screen
+ * from then on. The line is only drawn again when its characters
+ * change, e.g. when the score goes up or a new dialogue message is
+ * shown, so a frame costs one blit per line however long the text is.
+ * The glyphs come from a {@link GlyphCache}, so even redrawing the line
+ * needs no font layout and builds no Strings.
+ */
+public class TextImage {
+	/** The glyphs the text is drawn with */
+	private GlyphCache glyphs;
+	/** The image the line is drawn into, null until the first line is drawn */
+	private Image image;
+	/** The graphics context of the image, kept so redrawing the line doesn't allocate */
+	private Graphics2D imageGraphics;
+	/** The characters currently drawn into the image */
+	private char[] chars = new char[32];
+	/** The number of characters drawn into the image, -1 if none have been */
+	private int length = -1;
+	/** The width of the text drawn into the image */
+	private int width;
+	/** The number of times the line has been drawn into the image */
+	private int rasterizations;
+
+	/**
+	 * Create a new, empty line of text
+	 * 
+	 * @param glyphs The glyphs to draw the text with
+	 */
+	public TextImage(GlyphCache glyphs) {
+		this.glyphs = glyphs;
+	}
+
+	/**
+	 * Change the text of the line, drawing it into the image if it
+	 * differs from the text already there
+	 * 
+	 * @param text The characters of the new text
+	 * @param offset The index of the first character
+	 * @param count The number of characters
+	 */
+	public void setText(char[] text,int offset,int count) {
+		if (count == length) {
+			int i = 0;
+			while (i < count && chars[i] == text[offset + i]) {
+				i++;
+			}
+			if (i == count) {
+				return;
+			}
+		}
+		if (count > chars.length) {
+			chars = new char[Math.max(count,chars.length * 2)];
+		}
+		System.arraycopy(text,offset,chars,0,count);
+		length = count;
+		rasterize();
+	}
+
+	/**
+	 * Change the text of the line, drawing it into the image if it
+	 * differs from the text already there
+	 * 
+	 * @param text The new text
+	 */
+	public void setText(String text) {
+		int count = text.length();
+		if (count == length) {
+			int i = 0;
+			while (i < count && chars[i] == text.charAt(i)) {
+				i++;
+			}
+			if (i == count) {
+				return;
+			}
+		}
+		if (count > chars.length) {
+			chars = new char[Math.max(count,chars.length * 2)];
+		}
+		text.getChars(0,count,chars,0);
+		length = count;
+		rasterize();
+	}
+
+	/**
+	 * Draw the characters into the image, making a bigger image first
+	 * if they won't fit
+	 */
+	private void rasterize() {
+		int padding = glyphs.getPadding();
+		int height = glyphs.getCellHeight();
+		width = glyphs.charsWidth(chars,0,length);
+		if (image == null || image.getWidth(null) < width + (padding * 2)) {
+			if (imageGraphics != null) {
+				imageGraphics.dispose();
+			}
+			image = SpriteStore.get().createAcceleratedImage(Math.max(64,width + (padding * 2)),height);
+			imageGraphics = (Graphics2D) image.getGraphics();
+		}
+
+		imageGraphics.setComposite(AlphaComposite.Clear);
+		imageGraphics.fillRect(0,0,image.getWidth(null),height);
+		imageGraphics.setComposite(AlphaComposite.SrcOver);
+		glyphs.drawChars(imageGraphics,chars,0,length,padding,glyphs.getBaseline());
+		rasterizations++;
+	}
+
+	/**
+	 * Draw the line
+	 * 
+	 * @param g The graphics context on which to draw
+	 * @param x The x location of the start of the text
+	 * @param y The y location of the text's baseline
+	 */
+	public void draw(Graphics g,int x,int y) {
+		if (length <= 0) {
+			return;
+		}
+		int padding = glyphs.getPadding();
+		int left = x - padding;
+		int top = y - glyphs.getBaseline();
+		int w = width + (padding * 2);
+		int h = glyphs.getCellHeight();
+		g.drawImage(image,left,top,left + w,top + h,0,0,w,h,null);
+	}
+
+	/**
+	 * Get the width of the text
+	 * 
+	 * @return The width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Get the number of times the line has been drawn into its image
+	 * 
+	 * @return The number of times
+	 */
+	public int getRasterizations() {
+		return rasterizations;
+	}
+}
@@ -0,0 +1,157 @@
+package com.ben.game;
+
+import java.util.Arrays;
+
+/**
+ * A copy of everything the renderer needs to draw a single frame:
+ * where each entity was at the start and end of the last simulation
+ * tick, the sprite it is showing and the HUD text. The simulation
+ * fills a snapshot in and the renderer only ever reads it, so drawing
+ * never has to look at the live entity list. Snapshots are drawn by a
+ * {@link SnapshotRenderer}.
+ */
+public class WorldSnapshot {
+	/** The number of entities held in this snapshot */
+	int count;
+	/** The x location of each entity at the start of the tick */
+	double[] lastX = new double[256];
+	/** The y location of each entity at the start of the tick */
+	double[] lastY = new double[256];
+	/** The x location of each entity at the end of the tick */
+	double[] x = new double[256];
+	/** The y location of each entity at the end of the tick */
+	double[] y = new double[256];
+	/** The sprite each entity is showing */
+	Sprite[] sprites = new Sprite[256];
+	/** The score line of the HUD */
+	HudText score = new HudText("Score: ");
+	/** The killed line of the HUD */
+	HudText killed = new HudText("Killed: ");
+	/** The aliens line of the HUD */
+	HudText aliens = new HudText("Aliens: ");
+	/** The number of particles held in this snapshot */
+	int particleCount;
+	/** The screen pixel each particle covers */
+	int[] particlePixels = new int[256];
+	/** The colour each particle is drawn in */
+	int[] particleColors = new int[256];
+	/** The left of the area covered by particles */
+	int particleMinX;
+	/** The top of the area covered by particles */
+	int particleMinY;
+	/** One past the right of the area covered by particles */
+	int particleMaxX;
+	/** One past the bottom of the area covered by particles */
+	int particleMaxY;
+	/** The number of particle updates there had been when captured */
+	long particleUpdates;
+	/** True once the snapshot has been filled in */
+	boolean captured;
+	/** The dialogue message to show */
+	String message;
+	/** True if the game is waiting for the player to continue */
+	boolean waitingForKeyPress;
+	/** The time (System.nanoTime) at which this snapshot was captured */
+	long time;
+	/** True if the profiler's overlay is drawn over this snapshot */
+	boolean overlayVisible;
+	/** The text of the profiler's overlay when captured */
+	char[][] overlay = FrameProfiler.createOverlayText();
+	/** What drawing this snapshot has cost, recorded by whichever thread draws it until handed back to the profiler */
+	final FrameStats renderStats = new FrameStats();
+
+	/**
+	 * Fill in this snapshot from the current state of the game.
+	 * 
+	 * @param game The game to copy from
+	 */
+	void capture(Game game) {
+		int size = game.entities.size();
+		ensureCapacity(size);
+		EntityStore store = game.getEntityStore();
+		for (int i=0;i<size;i++) {
+			int slot = ((Entity) game.entities.get(i)).slot;
+			lastX[i] = store.lastX[slot];
+			lastY[i] = store.lastY[slot];
+			x[i] = store.x[slot];
+			y[i] = store.y[slot];
+			sprites[i] = store.sprite[slot];
+		}
+		// clear out references left over from a larger frame
+
+		for (int i=size;i<count;i++) {
+			sprites[i] = null;
+		}
+		count = size;
+		score.copyFrom(game.getScoreText());
+		killed.copyFrom(game.getKilledText());
+		aliens.copyFrom(game.getAliensText());
+		captureParticles(game.getParticles());
+		message = game.message;
+		waitingForKeyPress = game.isWaitingForKeyPress();
+		overlayVisible = game.getProfiler().copyOverlay(overlay);
+		time = System.nanoTime();
+		captured = true;
+	}
+
+	/**
+	 * Copy the particles ready to be drawn
+	 * 
+	 * @param particles The particles to copy
+	 */
+	private void captureParticles(ParticleSystem particles) {
+		int n = particles.count;
+		if (n > particlePixels.length) {
+			int capacity = Math.max(n,particlePixels.length * 2);
+			particlePixels = new int[capacity];
+			particleColors = new int[capacity];
+		}
+		System.arraycopy(particles.pixel,0,particlePixels,0,n);
+		System.arraycopy(particles.shade,0,particleColors,0,n);
+		particleCount = n;
+		particleMinX = particles.minX;
+		particleMinY = particles.minY;
+		particleMaxX = particles.maxX;
+		particleMaxY = particles.maxY;
+		particleUpdates = particles.updates;
+	}
+
+	/**
+	 * Get the x location to draw an entity at
+	 * 
+	 * @param i The index of the entity in this snapshot
+	 * @param alpha How far between the start and end of the tick to draw (0..1)
+	 * @return The x location in pixels
+	 */
+	int getDrawX(int i,double alpha) {
+		return (int) (lastX[i] + (x[i] - lastX[i]) * alpha);
+	}
+
+	/**
+	 * Get the y location to draw an entity at
+	 * 
+	 * @param i The index of the entity in this snapshot
+	 * @param alpha How far between the start and end of the tick to draw (0..1)
+	 * @return The y location in pixels
+	 */
+	int getDrawY(int i,double alpha) {
+		return (int) (lastY[i] + (y[i] - lastY[i]) * alpha);
+	}
+
+	/**
+	 * Make sure the arrays can hold at least the given number of entities
+	 * 
+	 * @param size The number of entities needed
+	 */
+	private void ensureCapacity(int size) {
+		if (size <= x.length) {
+			return;
+		}
+		int capacity = Math.max(size, x.length * 2);
+		lastX = Arrays.copyOf(lastX, capacity);
+		lastY = Arrays.copyOf(lastY, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		sprites = Arrays.copyOf(sprites, capacity);
+	}
+}
@@ -0,0 +1,62 @@
+package com.ben.game;
+
+/**
+ * Hands world snapshots from the simulation thread to the render
+ * thread. Three snapshots rotate between the two: the one being
+ * written, the one being drawn and the most recently published one
+ * waiting in between. Neither side ever waits on the other for longer
+ * than it takes to swap two references, so a slow present can't hold
+ * up the simulation and a busy simulation can't hold up drawing.
+ */
+public class WorldSnapshotBuffer {
+	/** The snapshot the simulation is currently filling in */
+	private WorldSnapshot writing = new WorldSnapshot();
+	/** The last published snapshot, not yet picked up by the renderer */
+	private WorldSnapshot ready = new WorldSnapshot();
+	/** The snapshot the renderer is currently drawing */
+	private WorldSnapshot reading = new WorldSnapshot();
+	/** True if ready holds a snapshot the renderer hasn't seen */
+	private boolean fresh = false;
+
+	/**
+	 * Capture the current state of the game and make it the latest
+	 * snapshot available to the renderer. Only called from the
+	 * simulation thread.
+	 * <p>
+	 * The snapshot about to be written was last drawn by the renderer,
+	 * so what drawing it cost is handed to the game's profiler first.
+	 * That happens on this thread, after the swap that passed the
+	 * snapshot back, so the profiler never sees the render thread's
+	 * writes half done.
+	 * 
+	 * @param game The game to capture
+	 */
+	public void publish(Game game) {
+		game.getProfiler().add(writing.renderStats);
+		writing.capture(game);
+		synchronized (this) {
+			WorldSnapshot temp = ready;
+			ready = writing;
+			writing = temp;
+			fresh = true;
+		}
+	}
+
+	/**
+	 * Get the latest published snapshot. Only called from the render
+	 * thread, the snapshot returned stays valid until the next call.
+	 * 
+	 * @return The latest snapshot, or null if nothing has been published yet
+	 */
+	public WorldSnapshot acquire() {
+		synchronized (this) {
+			if (fresh) {
+				WorldSnapshot temp = reading;
+				reading = ready;
+				ready = temp;
+				fresh = false;
+			}
+		}
+		return reading.captured ? reading : null;
+	}
+}